@@ -2,27 +2,37 @@ package hudson.plugins.clover;
 
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
 import com.google.common.cache.LoadingCache;
+import com.google.common.cache.Weigher;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import hudson.model.Action;
 import hudson.model.HealthReport;
 import hudson.model.HealthReportingAction;
 import hudson.model.Result;
 import hudson.model.Run;
+import hudson.plugins.clover.graphs.CoverageTrendStore;
+import hudson.plugins.clover.results.AbstractCloverMetrics;
 import hudson.plugins.clover.results.AbstractPackageAggregatedMetrics;
 import hudson.plugins.clover.results.ClassCoverage;
+import hudson.plugins.clover.results.CoverageRanking;
+import hudson.plugins.clover.results.CoverageSnapshot;
 import hudson.plugins.clover.results.FileCoverage;
 import hudson.plugins.clover.results.PackageCoverage;
 import hudson.plugins.clover.results.ProjectCoverage;
 import hudson.plugins.clover.targets.CoverageMetric;
 import hudson.plugins.clover.targets.CoverageTarget;
+import hudson.util.Graph;
 import java.io.File;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -43,29 +53,132 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
     private final CoverageTarget healthyTarget;
     private final CoverageTarget unhealthyTarget;
     private transient List<CloverProjectAction> projectActions;
+    /**
+     * Whether the project level counters are stored in this action itself, so that build pages and health reports
+     * do not need the full report. Set when the report is published; <code>false</code> for actions recorded by
+     * older versions, which take the summary from their report when it is next loaded and are saved later by
+     * {@link CoverageSummaryMigration}.
+     */
+    private boolean summaryStored;
+    /** The rankings computed when the report was published, <code>null</code> for older builds. */
+    private CoverageRanking ranking;
+    /** The node count of the report while it is in the cache, computed once when it is added. */
+    private transient int cacheWeight;
+
+    /**
+     * Upper bound of reports loaded (parsed or read from their snapshot) at the same time across all builds, so that
+     * a burst of page views after a restart cannot load every report of the instance into memory at once. Can be
+     * set with the <code>hudson.plugins.clover.CloverBuildAction.maxConcurrentLoads</code> system property.
+     */
+    static final int MAX_CONCURRENT_LOADS = Math.max(1, Integer.getInteger(
+            CloverBuildAction.class.getName() + ".maxConcurrentLoads",
+            Runtime.getRuntime().availableProcessors() / 2));
+
+    private static final Semaphore loadPermits = new Semaphore(MAX_CONCURRENT_LOADS, true);
 
     private static final CacheLoader<CloverBuildAction, ProjectCoverage> coverageCacheLoader =
             new CacheLoader<CloverBuildAction, ProjectCoverage>() {
                 @Override
                 public ProjectCoverage load(@NotNull CloverBuildAction k) throws IOException {
-                    return k.computeResult();
+                    final long start = System.nanoTime();
+                    try {
+                        loadPermits.acquire();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting to load coverage results");
+                    }
+                    final long acquired = System.nanoTime();
+                    ProjectCoverage r = null;
+                    try {
+                        r = k.computeResult();
+                        k.cacheWeight = r.getNodeCount();
+                        return r;
+                    } finally {
+                        loadPermits.release();
+                        CloverStatistics.get().recordLoad(acquired - start, System.nanoTime() - acquired, r);
+                    }
                 }
             };
 
-    private static final LoadingCache<CloverBuildAction, ProjectCoverage> reports = CacheBuilder.newBuilder()
-            .weakKeys()
-            .expireAfterAccess(60, TimeUnit.MINUTES)
-            .build(coverageCacheLoader);
+    private static volatile LoadingCache<CloverBuildAction, ProjectCoverage> reports = createReportCache(
+            CloverGlobalConfiguration.DEFAULT_MAX_CACHE_WEIGHT, CloverGlobalConfiguration.DEFAULT_CACHE_EXPIRE_MINUTES,
+            false);
+
+    /**
+     * Creates the cache of loaded reports, weighted by the number of nodes of each report.
+     *
+     * @param maxWeight  upper bound of the summed node counts, <code>0</code> for no bound
+     * @param expireMinutes minutes after the last access a report is dropped, <code>0</code> to never expire
+     * @param softValues whether the garbage collector may reclaim cached reports when the heap runs low
+     */
+    private static LoadingCache<CloverBuildAction, ProjectCoverage> createReportCache(
+            long maxWeight, int expireMinutes, boolean softValues) {
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder().weakKeys().recordStats();
+        if (maxWeight > 0) {
+            // a single segment, so that one large report is only bounded by the whole weight and not a fraction of it
+            builder.concurrencyLevel(1)
+                    .maximumWeight(maxWeight)
+                    .weigher((Weigher<CloverBuildAction, ProjectCoverage>) (k, v) -> k.cacheWeight);
+        }
+        if (expireMinutes > 0) {
+            builder.expireAfterAccess(expireMinutes, TimeUnit.MINUTES);
+        }
+        if (softValues) {
+            builder.softValues();
+        }
+        return builder.build(coverageCacheLoader);
+    }
+
+    /**
+     * Replaces the cache of loaded reports with one using the given settings, keeping the reports loaded so far as
+     * far as they fit.
+     */
+    static void configureReportCache(long maxWeight, int expireMinutes, boolean softValues) {
+        final LoadingCache<CloverBuildAction, ProjectCoverage> old = reports;
+        final LoadingCache<CloverBuildAction, ProjectCoverage> cache = createReportCache(maxWeight, expireMinutes, softValues);
+        cache.putAll(old.asMap());
+        reports = cache;
+        retiredCacheStats = retiredCacheStats.plus(old.stats());
+        old.invalidateAll();
+    }
 
     static void invalidateReportCache() {
         reports.invalidateAll();
     }
 
+    /** Statistics of the caches replaced by {@link #configureReportCache}. */
+    private static volatile CacheStats retiredCacheStats = new CacheStats(0, 0, 0, 0, 0, 0);
+
+    /**
+     * Gets the statistics of the report cache since startup.
+     */
+    static CacheStats getReportCacheStats() {
+        return retiredCacheStats.plus(reports.stats());
+    }
+
+    static long getReportCacheSize() {
+        return reports.size();
+    }
+
+    /**
+     * Gets the summed node count of the reports in the cache, from the weights computed when they were added.
+     */
+    static long getReportCacheWeight() {
+        long weight = 0;
+        for (CloverBuildAction a : reports.asMap().keySet()) {
+            weight += a.cacheWeight;
+        }
+        return weight;
+    }
+
     public HealthReport getBuildHealth() {
         if (healthyTarget == null || unhealthyTarget == null) {
             return null;
         }
-        ProjectCoverage projectCoverage = getResult();
+        AbstractCloverMetrics projectCoverage = summaryStored ? this : getResult();
+        if (projectCoverage == null) {
+            return null;
+        }
         Map<CoverageMetric, Integer> scores = healthyTarget.getRangeScores(unhealthyTarget, projectCoverage);
         int minValue = 100;
         CoverageMetric minKey = null;
@@ -121,6 +234,26 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
         return reportId;
     }
 
+    /**
+     * Gets the workspace path trimmed from the file names of the report, with a trailing separator.
+     */
+    String getBuildBaseDir() {
+        return buildBaseDir;
+    }
+
+    /**
+     * Gets the classes and files ranked when the report was published.
+     *
+     * @return the rankings, <code>null</code> if the report was published before they were computed
+     */
+    public CoverageRanking getRanking() {
+        return ranking;
+    }
+
+    void setRanking(CoverageRanking ranking) {
+        this.ranking = ranking;
+    }
+
     public Object getTarget() {
         return getResult();
     }
@@ -165,7 +298,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
             CoverageTarget healthyTarget,
             CoverageTarget unhealthyTarget) {
         if (r != null) {
+            cacheWeight = r.getNodeCount();
             reports.put(this, r);
+            storeSummary(r);
         }
         this.projectActions = new ArrayList<>();
 
@@ -186,6 +321,7 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
         ProjectCoverage c = reports.getIfPresent(this);
         if (c != null) {
             c.setOwner(build);
+            c.setReportId(reportId);
         }
 
         getActions().add(new CloverProjectAction(build.getParent()));
@@ -198,26 +334,113 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
     }
 
     /**
-     * Obtains the detailed {@link ProjectCoverage} instance.
+     * Obtains the detailed {@link ProjectCoverage} instance. Concurrent callers for the same build wait for a
+     * single load of the report instead of each loading it.
      *
      * @return ProjectCoverage
      */
-    public synchronized ProjectCoverage getResult() {
+    public ProjectCoverage getResult() {
+        ProjectCoverage r = reports.getIfPresent(this);
+        if (r != null) {
+            return r;
+        }
         try {
             return reports.get(this);
-        } catch (ExecutionException e) {
-            logger.log(Level.WARNING, "Failed to load " + CloverPublisher.getCloverXmlReport(owner), e);
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            logger.log(Level.WARNING, "Failed to load " + CloverPublisher.getCloverXmlReport(owner, reportId), e.getCause());
             return null;
         }
     }
 
     private ProjectCoverage computeResult() throws IOException {
-        File reportFile = CloverPublisher.getCloverXmlReport(owner, reportId);
-        ProjectCoverage r = CloverCoverageParser.parse(reportFile, buildBaseDir);
+        File snapshotFile = CloverPublisher.getCloverSnapshotFile(owner, reportId);
+        ProjectCoverage r = null;
+        if (snapshotFile.exists()) {
+            try {
+                r = CoverageSnapshot.read(snapshotFile);
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Rebuilding " + snapshotFile + " from the XML report", e);
+            }
+        }
+        if (r == null) {
+            File reportFile = CloverPublisher.getCloverXmlReport(owner, reportId);
+            final long start = System.nanoTime();
+            r = CloverCoverageParser.parse(reportFile, buildBaseDir);
+            CloverStatistics.get().recordParse(reportFile.length(), System.nanoTime() - start);
+            try {
+                CoverageSnapshot.write(r, snapshotFile);
+            } catch (IOException e) {
+                logger.log(Level.FINE, "Failed to write " + snapshotFile, e);
+            }
+        }
         r.setOwner(owner);
+        r.setReportId(reportId);
+        if (!summaryStored) {
+            storeSummary(r);
+            if (owner != null) {
+                CoverageSummaryMigration.schedule(owner);
+            }
+        }
         return r;
     }
 
+    /**
+     * Copies the project level counters of the given report into this action.
+     */
+    private void storeSummary(ProjectCoverage r) {
+        setName(r.getName());
+        setPackages(r.getPackages());
+        setFiles(r.getFiles());
+        setClasses(r.getClasses());
+        setLoc(r.getLoc());
+        setNcloc(r.getNcloc());
+        setMethods(r.getMethods());
+        setCoveredmethods(r.getCoveredmethods());
+        setConditionals(r.getConditionals());
+        setCoveredconditionals(r.getCoveredconditionals());
+        setStatements(r.getStatements());
+        setCoveredstatements(r.getCoveredstatements());
+        setElements(r.getElements());
+        setCoveredelements(r.getCoveredelements());
+        summaryStored = true;
+    }
+
+    /**
+     * Records the project level counters of this build in the trend store of the job. The first build recorded for
+     * a job and reportId also carries over the builds published before the store existed: those with a stored
+     * summary right away, the others once {@link CoverageSummaryMigration} has loaded their reports.
+     */
+    void recordTrend(ProjectCoverage result) throws IOException {
+        final List<CoverageTrendStore.Entry> entries = new ArrayList<>();
+        final List<CloverBuildAction> unsummarized = new ArrayList<>();
+        if (!CoverageTrendStore.exists(owner.getParent(), reportId)) {
+            for (CloverBuildAction a = getPreviousResult(); a != null; a = a.getPreviousResult()) {
+                if (a.summaryStored) {
+                    entries.add(0, CoverageTrendStore.Entry.of(a.owner, a));
+                } else {
+                    unsummarized.add(a);
+                }
+            }
+        }
+        entries.add(CoverageTrendStore.Entry.of(owner, result));
+        CoverageTrendStore.append(owner.getParent(), reportId, entries);
+        if (!unsummarized.isEmpty()) {
+            CoverageSummaryMigration.backfillTrend(owner.getParent(), reportId, unsummarized);
+        }
+    }
+
+    /**
+     * Gets the project level trend graph, drawn from the trend store of the job when it exists.
+     */
+    @Override
+    public Graph getTrendGraph() {
+        if (owner != null && CoverageTrendStore.exists(owner.getParent(), reportId)) {
+            return CoverageTrendStore.createGraph(owner, reportId);
+        }
+        ProjectCoverage result = getResult();
+        return result == null ? null : result.getTrendGraph();
+    }
+
     // the following is ugly but I might need it
 
     /**
@@ -245,6 +468,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      * {@inheritDoc}
      */
     public int getPackages() {
+        if (summaryStored) {
+            return super.getPackages();
+        }
         return getResult().getPackages();
     }
 
@@ -253,6 +479,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getFiles() {
+        if (summaryStored) {
+            return super.getFiles();
+        }
         return getResult().getFiles();
     }
 
@@ -261,6 +490,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getClasses() {
+        if (summaryStored) {
+            return super.getClasses();
+        }
         return getResult().getClasses();
     }
 
@@ -269,6 +501,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getLoc() {
+        if (summaryStored) {
+            return super.getLoc();
+        }
         return getResult().getLoc();
     }
 
@@ -277,6 +512,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getNcloc() {
+        if (summaryStored) {
+            return super.getNcloc();
+        }
         return getResult().getNcloc();
     }
 
@@ -285,6 +523,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public Ratio getMethodCoverage() {
+        if (summaryStored) {
+            return super.getMethodCoverage();
+        }
         return getResult().getMethodCoverage();
     }
 
@@ -293,6 +534,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public Ratio getStatementCoverage() {
+        if (summaryStored) {
+            return super.getStatementCoverage();
+        }
         return getResult().getStatementCoverage();
     }
 
@@ -301,6 +545,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public Ratio getConditionalCoverage() {
+        if (summaryStored) {
+            return super.getConditionalCoverage();
+        }
         return getResult().getConditionalCoverage();
     }
 
@@ -309,6 +556,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public Ratio getElementCoverage() {
+        if (summaryStored) {
+            return super.getElementCoverage();
+        }
         return getResult().getElementCoverage();
     }
 
@@ -317,6 +567,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getConditionals() {
+        if (summaryStored) {
+            return super.getConditionals();
+        }
         return getResult().getConditionals();
     }
 
@@ -325,6 +578,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getMethods() {
+        if (summaryStored) {
+            return super.getMethods();
+        }
         return getResult().getMethods();
     }
 
@@ -333,6 +589,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getCoveredstatements() {
+        if (summaryStored) {
+            return super.getCoveredstatements();
+        }
         return getResult().getCoveredstatements();
     }
 
@@ -341,6 +600,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getCoveredmethods() {
+        if (summaryStored) {
+            return super.getCoveredmethods();
+        }
         return getResult().getCoveredmethods();
     }
 
@@ -349,6 +611,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getCoveredconditionals() {
+        if (summaryStored) {
+            return super.getCoveredconditionals();
+        }
         return getResult().getCoveredconditionals();
     }
 
@@ -357,6 +622,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getStatements() {
+        if (summaryStored) {
+            return super.getStatements();
+        }
         return getResult().getStatements();
     }
 
@@ -365,6 +633,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getCoveredelements() {
+        if (summaryStored) {
+            return super.getCoveredelements();
+        }
         return getResult().getCoveredelements();
     }
 
@@ -373,6 +644,9 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
      */
     @Override
     public int getElements() {
+        if (summaryStored) {
+            return super.getElements();
+        }
         return getResult().getElements();
     }
 
@@ -416,4 +690,6 @@ public class CloverBuildAction extends AbstractPackageAggregatedMetrics
     public int hashCode() {
         return Objects.hash(reportId, buildBaseDir, healthyTarget, unhealthyTarget);
     }
+
+    private static final long serialVersionUID = 1L;
 }
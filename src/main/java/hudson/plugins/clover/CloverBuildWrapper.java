@@ -6,6 +6,7 @@ import org.openclover.ci.AntIntegrationListener;
 import org.openclover.util.ClassPathUtil;
 import com.google.common.base.Function;
 import com.google.common.collect.Lists;
+import hudson.EnvVars;
 import hudson.Extension;
 import hudson.FilePath;
 import hudson.Launcher;
@@ -16,8 +17,12 @@ import hudson.model.Action;
 import hudson.model.BuildListener;
 import hudson.model.Descriptor;
 import hudson.model.FreeStyleProject;
+import hudson.model.Node;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.plugins.clover.slave.HashFilesCallable;
+import hudson.plugins.clover.slave.InstallCachedJarCallable;
+import hudson.plugins.clover.slave.ProbeCachedJarCallable;
 import hudson.remoting.Channel;
 import hudson.tasks.BuildWrapper;
 import hudson.tasks.BuildWrapperDescriptor;
@@ -26,6 +31,7 @@ import hudson.util.DescribableList;
 import net.sf.json.JSONObject;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
 import org.kohsuke.stapler.StaplerRequest2;
 import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -34,6 +40,11 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.util.ArrayList;
@@ -50,10 +61,18 @@ import java.util.Map;
  */
 public class CloverBuildWrapper extends BuildWrapper {
 
+    /**
+     * Directory below the root of a node where the bundled clover.jar is provisioned, in one sub-directory per
+     * SHA-256 of the jar.
+     */
+    static final String TOOL_CACHE = "tools/clover-jar";
+
     public boolean historical = true;
     public boolean json = true;
     public final String clover;
     public final boolean putValuesInQuotes;
+    private boolean optimizeTests;
+    private boolean incremental;
 
     @DataBoundConstructor
     public CloverBuildWrapper(boolean historical, boolean json, String clover, boolean putValuesInQuotes) {
@@ -63,13 +82,142 @@ public class CloverBuildWrapper extends BuildWrapper {
         this.putValuesInQuotes = putValuesInQuotes;
     }
 
+    /**
+     * Whether OpenClover test optimization is enabled, running only the tests affected by the changes since the last
+     * build. The optimization snapshot is kept on the controller between builds, per job and branch.
+     */
+    public boolean isOptimizeTests() {
+        return optimizeTests;
+    }
+
+    @DataBoundSetter
+    public void setOptimizeTests(boolean optimizeTests) {
+        this.optimizeTests = optimizeTests;
+    }
+
+    /**
+     * Whether the Clover database is kept between builds, so that only changed sources are instrumented again. It is
+     * reused in the workspace or restored from the controller, and discarded whenever the Clover version or the
+     * integration settings change.
+     */
+    public boolean isIncremental() {
+        return incremental;
+    }
+
+    @DataBoundSetter
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
     @Override
-    public Environment setUp(AbstractBuild build, Launcher launcher, BuildListener listener) {
+    public Environment setUp(AbstractBuild build, Launcher launcher, BuildListener listener)
+            throws IOException, InterruptedException {
         addCloverPublisher(build, listener);
+        final FilePath workspace = build.getWorkspace();
+        if ((!optimizeTests && !incremental) || workspace == null) {
+            return new Environment() {
+            };
+        }
+
+        final FilePath workspaceSnapshot = getWorkspaceSnapshot(workspace);
+        final File storedSnapshot = new File(getStateDir(build), getBranchKey(build, listener) + ".snapshot");
+        if (optimizeTests) {
+            if (storedSnapshot.isFile()) {
+                listener.getLogger().println("Restoring Clover optimization snapshot " + storedSnapshot.getName());
+                workspaceSnapshot.copyFrom(new FilePath(storedSnapshot));
+            } else {
+                listener.getLogger().println("No Clover optimization snapshot for this branch yet, running all tests");
+                workspaceSnapshot.delete();
+            }
+        }
+        final CloverDatabaseCache database = incremental ? new CloverDatabaseCache(workspace,
+                new File(getStateDir(build), getBranchKey(build, listener) + ".db"), getDatabaseFingerprint()) : null;
+        if (database != null) {
+            database.restore(listener);
+        }
+
         return new Environment() {
+            @Override
+            public boolean tearDown(AbstractBuild build, BuildListener listener) throws IOException, InterruptedException {
+                if (optimizeTests && workspaceSnapshot.exists()) {
+                    final File dir = storedSnapshot.getParentFile();
+                    if (!dir.isDirectory() && !dir.mkdirs()) {
+                        throw new IOException("Unable to create " + dir);
+                    }
+                    // a temporary file of its own, as concurrent builds of the branch save the same snapshot
+                    final Path tmp = Files.createTempFile(dir.toPath(), storedSnapshot.getName(), ".tmp");
+                    try {
+                        workspaceSnapshot.copyTo(new FilePath(tmp.toFile()));
+                        Files.move(tmp, storedSnapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                    } finally {
+                        Files.deleteIfExists(tmp);
+                    }
+                }
+                if (database != null) {
+                    database.save();
+                }
+                return true;
+            }
         };
     }
 
+    /**
+     * Identifies what a kept Clover database depends on: the Clover version and the settings of the integration.
+     */
+    private String getDatabaseFingerprint() throws IOException {
+        final StringBuilder sb = new StringBuilder();
+        final CloverInstallation installation = CloverInstallation.forName(clover);
+        if (installation != null) {
+            sb.append("installation=").append(installation.getName()).append(':').append(installation.getHome());
+        } else {
+            final String cloverJarLocation = ClassPathUtil.getCloverJarPath();
+            sb.append("bundled=").append(cloverJarLocation == null
+                    ? "unknown" : BundledJar.of(new File(cloverJarLocation)).sha256);
+        }
+        sb.append(";historical=").append(historical)
+                .append(";json=").append(json)
+                .append(";putValuesInQuotes=").append(putValuesInQuotes)
+                .append(";optimizeTests=").append(optimizeTests);
+        return sb.toString();
+    }
+
+    /**
+     * Gets the directory of the job where the state kept between builds is stored.
+     */
+    private static File getStateDir(AbstractBuild<?, ?> build) {
+        return new File(build.getProject().getRootDir(), "clover-state");
+    }
+
+    /**
+     * Gets the branch of the given build as a file name, the state kept between builds is separate per branch.
+     */
+    private static String getBranchKey(AbstractBuild<?, ?> build, TaskListener listener)
+            throws IOException, InterruptedException {
+        final EnvVars env = build.getEnvironment(listener);
+        String branch = env.get("BRANCH_NAME");
+        if (branch == null) {
+            branch = env.get("GIT_BRANCH");
+        }
+        return branch == null ? "default" : toFileName(branch);
+    }
+
+    /**
+     * Encodes a branch name as a file name. The encoding is reversible, so different branches never share a name:
+     * letters, digits, <code>.</code>, <code>-</code> and <code>_</code> are kept, everything else is URL-encoded.
+     */
+    static String toFileName(String branch) {
+        // '*' is not encoded by URLEncoder, but not allowed in file names on Windows
+        return URLEncoder.encode(branch, StandardCharsets.UTF_8).replace("*", "%2A");
+    }
+
+    /**
+     * Gets where the Ant build reads and updates the optimization snapshot, passed to it as
+     * <code>clover.snapshot.file</code>.
+     */
+    static FilePath getWorkspaceSnapshot(FilePath workspace) {
+        return workspace.child(".clover").child("clover.snapshot");
+    }
+
     /**
      * Add CloverPublisher to the project. Used in case of automatic Clover integration. Do not add if there is
      * another CloverPublisher defined already (e.g. was added manually by user).
@@ -119,10 +267,17 @@ public class CloverBuildWrapper extends BuildWrapper {
         final CIOptions.Builder options = new CIOptions.Builder()
                 .json(this.json)
                 .historical(this.historical)
-                .fullClean(true)
+                .fullClean(!incremental)
                 .putValuesInQuotes(this.putValuesInQuotes);
 
-        return new CloverDecoratingLauncher(this, getInstallationForBuild(build, launcher), launcher, options);
+        final Node node = build.getBuiltOn();
+        final FilePath rootPath = node == null ? null : node.getRootPath();
+        final CloverDecoratingLauncher decorated = new CloverDecoratingLauncher(this,
+                getInstallationForBuild(build, launcher), launcher, options, rootPath == null ? null : rootPath.child(TOOL_CACHE));
+        if (optimizeTests && build.getWorkspace() != null) {
+            decorated.optimizationSnapshot = getWorkspaceSnapshot(build.getWorkspace()).getRemote();
+        }
+        return decorated;
     }
 
     /**
@@ -170,12 +325,25 @@ public class CloverBuildWrapper extends BuildWrapper {
         private final Launcher outer;
         private final CloverBuildWrapper wrapper;
         private final CloverInstallation clover;
+        private final FilePath toolCache;
+        /** The snapshot used for test optimization, <code>null</code> if it is not enabled. */
+        String optimizationSnapshot;
 
         public CloverDecoratingLauncher(CloverBuildWrapper cloverBuildWrapper, CloverInstallation clover, Launcher outer, CIOptions.Builder options) {
+            this(cloverBuildWrapper, clover, outer, options, null);
+        }
+
+        /**
+         * @param toolCache directory on the node where the bundled clover.jar is provisioned, <code>null</code> for
+         *                  the <code>.clover</code> directory of the working directory
+         */
+        public CloverDecoratingLauncher(CloverBuildWrapper cloverBuildWrapper, CloverInstallation clover, Launcher outer,
+                                        CIOptions.Builder options, FilePath toolCache) {
             super(outer);
             this.wrapper = cloverBuildWrapper;
             this.clover = clover;
             this.outer = outer;
+            this.toolCache = toolCache;
         }
 
         @Override
@@ -243,6 +411,7 @@ public class CloverBuildWrapper extends BuildWrapper {
                 // and expect to be loaded from clover.jar, not remoting classloader
 
                 addReportSkipping(userArgs);
+                addTestOptimization(userArgs);
                 addAntIntegrationListener(userArgs);
                 if (clover != null) {
                     addLibCloverFromHome(userArgs);
@@ -327,6 +496,13 @@ public class CloverBuildWrapper extends BuildWrapper {
             }
         }
 
+        private void addTestOptimization(List<String> userArgs) {
+            if (optimizationSnapshot != null) {
+                userArgs.add("-Dclover.optimization.enabled=true");
+                userArgs.add(addQuotesIfNecessary("-Dclover.snapshot.file=" + optimizationSnapshot));
+            }
+        }
+
         private void addAntIntegrationListener(List<String> userArgs) {
             userArgs.add("-listener");
             userArgs.add(AntIntegrationListener.class.getName());
@@ -343,14 +519,17 @@ public class CloverBuildWrapper extends BuildWrapper {
                 listener.getLogger().print("Could not get clover jar path from " + starter);
                 return;
             }
-            FilePath path = new FilePath(new FilePath(starterPwd, ".clover"), "clover.jar");
+            final FilePath cache = toolCache != null ? toolCache : new FilePath(starterPwd, ".clover");
+            FilePath path = cache.child("clover.jar");
             try {
                 String cloverJarLocation = ClassPathUtil.getCloverJarPath();
                 if (cloverJarLocation == null) {
                     listener.getLogger().print("Could not get clover jar path at: " + path + ".  Please supply '-lib /path/to/clover.jar'.");
                     return;
                 }
-                path.copyFrom(new FilePath(new File(cloverJarLocation)));
+                final BundledJar jar = BundledJar.of(new File(cloverJarLocation));
+                path = cache.child(jar.sha256).child("clover.jar");
+                provision(jar, path, listener);
                 userArgs.add("-lib");
                 userArgs.add("\"" + path.getRemote() + "\"");
             } catch (InterruptedException e) {
@@ -359,6 +538,27 @@ public class CloverBuildWrapper extends BuildWrapper {
             }
         }
 
+        /**
+         * Makes sure the node has a verified copy of the bundled jar at the given path. Only a checksum probe is sent
+         * to the node when the jar has been provisioned before.
+         */
+        private static void provision(BundledJar jar, FilePath path, TaskListener listener)
+                throws IOException, InterruptedException {
+            if (path.act(new ProbeCachedJarCallable(jar.sha256, jar.length))) {
+                return;
+            }
+            final FilePath dir = path.getParent();
+            dir.mkdirs();
+            final FilePath tmp = dir.createTempFile("clover", ".tmp");
+            try {
+                tmp.copyFrom(new FilePath(jar.file));
+                tmp.act(new InstallCachedJarCallable(path.getRemote(), jar.sha256));
+            } finally {
+                tmp.delete();
+            }
+            listener.getLogger().println("Provisioned " + jar.file.getName() + " (SHA-256 " + jar.sha256 + ") to " + path);
+        }
+
         @Override
         public Channel launchChannel(String[] cmd, OutputStream out, FilePath workDir, Map<String, String> envVars) throws IOException, InterruptedException {
             return outer.launchChannel(cmd, out, workDir, envVars);
@@ -398,4 +598,33 @@ public class CloverBuildWrapper extends BuildWrapper {
         }
     }
 
+    /**
+     * The clover.jar bundled with the plugin together with its checksum, which is computed once per version of the
+     * jar.
+     */
+    static final class BundledJar {
+        private static volatile BundledJar last;
+
+        final File file;
+        final long length;
+        final long lastModified;
+        final String sha256;
+
+        private BundledJar(File file, String sha256) {
+            this.file = file;
+            this.length = file.length();
+            this.lastModified = file.lastModified();
+            this.sha256 = sha256;
+        }
+
+        static BundledJar of(File file) throws IOException {
+            BundledJar jar = last;
+            if (jar == null || !jar.file.equals(file)
+                    || jar.length != file.length() || jar.lastModified != file.lastModified()) {
+                jar = new BundledJar(file, HashFilesCallable.hash(file.toPath()));
+                last = jar;
+            }
+            return jar;
+        }
+    }
 }
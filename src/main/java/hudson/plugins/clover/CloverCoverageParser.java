@@ -2,6 +2,7 @@ package hudson.plugins.clover;
 
 import hudson.plugins.clover.results.ClassCoverage;
 import hudson.plugins.clover.results.FileCoverage;
+import hudson.plugins.clover.results.LineCoverageStore;
 import hudson.plugins.clover.results.PackageCoverage;
 import hudson.plugins.clover.results.ProjectCoverage;
 import java.io.BufferedInputStream;
@@ -9,6 +10,7 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import org.apache.commons.digester3.Digester;
 import org.xml.sax.SAXException;
 
@@ -17,6 +19,30 @@ import javax.xml.parsers.ParserConfigurationException;
 
 public class CloverCoverageParser {
 
+    /**
+     * Engine used to read clover.xml. The default can be changed with the
+     * <code>hudson.plugins.clover.CloverCoverageParser.mode</code> system property (<code>stax</code> or
+     * <code>digester</code>), so that both engines can be compared on the same reports.
+     */
+    public enum Mode {
+        /** Streaming pull parser mapping the XML attributes directly onto the results model. */
+        STAX,
+        /** Rule based commons-digester parser. */
+        DIGESTER;
+
+        public static Mode getDefault() {
+            final String mode = System.getProperty(CloverCoverageParser.class.getName() + ".mode");
+            if (mode != null) {
+                for (Mode m : values()) {
+                    if (m.name().equalsIgnoreCase(mode.trim())) {
+                        return m;
+                    }
+                }
+            }
+            return STAX;
+        }
+    }
+
     /** Do not instantiate CloverCoverageParser. */
     private CloverCoverageParser() {
     }
@@ -26,10 +52,7 @@ public class CloverCoverageParser {
         if (pathPrefix == null) return result;
         for (PackageCoverage p: result.getPackageCoverages()) {
             for (FileCoverage f: p.getFileCoverages()) {
-                if (f.getName().startsWith(pathPrefix)) {
-                    f.setName(f.getName().substring(pathPrefix.length()));
-                }
-                f.setName(f.getName().replace('\\', '/'));
+                f.setName(trimPath(f.getName(), pathPrefix));
                 for (ClassCoverage c: f.getClassCoverages()) {
                     c.setName(p.getName() + "." + c.getName());
                 }
@@ -38,10 +61,57 @@ public class CloverCoverageParser {
         return result;
     }
 
+    static String trimPath(String name, String pathPrefix) {
+        if (pathPrefix == null) {
+            return name;
+        }
+        if (name.startsWith(pathPrefix)) {
+            name = name.substring(pathPrefix.length());
+        }
+        return name.replace('\\', '/');
+    }
+
+    /**
+     * Writes the line coverage of all files in the given clover.xml to a {@link LineCoverageStore}, trimming the
+     * file names in the same way as {@link #trimPaths}. The stream is closed when done.
+     */
+    public static void writeLines(File inFile, String pathPrefix, OutputStream out) throws IOException {
+        final boolean secure = !Boolean.getBoolean(CloverCoverageParser.class.getName() + ".UNSAFE");
+        try (LineCoverageStore.Writer writer = LineCoverageStore.write(out);
+             InputStream in = new BufferedInputStream(new FileInputStream(inFile))) {
+            if (CloverXmlStreamParser.parse(in, secure, pathPrefix, writer) == null) {
+                throw new IOException("Cannot parse coverage results: not a clover.xml report");
+            }
+        }
+    }
+
     public static ProjectCoverage parse(File inFile, String pathPrefix) throws IOException {
+        return parse(inFile, pathPrefix, Mode.getDefault());
+    }
+
+    /**
+     * Parses the given clover.xml and writes the line coverage of its files to a {@link LineCoverageStore} like
+     * {@link #writeLines}. With {@link Mode#STAX} both are read in a single pass over the file; the digester does not
+     * read the lines, so with {@link Mode#DIGESTER} they are read in a second pass. The stream is closed when done.
+     */
+    public static ProjectCoverage parse(File inFile, String pathPrefix, Mode mode, OutputStream lines)
+            throws IOException {
+        if (mode != Mode.STAX) {
+            final ProjectCoverage result = parse(inFile, pathPrefix, mode);
+            writeLines(inFile, pathPrefix, lines);
+            return result;
+        }
+        final boolean secure = !Boolean.getBoolean(CloverCoverageParser.class.getName() + ".UNSAFE");
+        try (LineCoverageStore.Writer writer = LineCoverageStore.write(lines);
+             InputStream in = new BufferedInputStream(new FileInputStream(inFile))) {
+            return trimPaths(CloverXmlStreamParser.parse(in, secure, pathPrefix, writer), pathPrefix);
+        }
+    }
+
+    public static ProjectCoverage parse(File inFile, String pathPrefix, Mode mode) throws IOException {
         try (FileInputStream fileInputStream = new FileInputStream(inFile);
              BufferedInputStream bufferedInputStream = new BufferedInputStream(fileInputStream)) {
-            return trimPaths(parse(bufferedInputStream), pathPrefix);
+            return trimPaths(parse(bufferedInputStream, mode), pathPrefix);
         }
     }
 
@@ -62,9 +132,20 @@ public class CloverCoverageParser {
     }
 
     public static ProjectCoverage parse(InputStream in) throws IOException {
+        return parse(in, Mode.getDefault());
+    }
+
+    public static ProjectCoverage parse(InputStream in, Mode mode) throws IOException {
         if (in == null) throw new NullPointerException();
+        boolean secure = (!Boolean.getBoolean(CloverCoverageParser.class.getName() + ".UNSAFE"));
+        if (mode == Mode.STAX) {
+            return CloverXmlStreamParser.parse(in, secure);
+        }
+        return parseWithDigester(in, secure);
+    }
+
+    private static ProjectCoverage parseWithDigester(InputStream in, boolean secure) throws IOException {
         try {
-            boolean secure = (!Boolean.getBoolean(CloverCoverageParser.class.getName() + ".UNSAFE"));
             Digester digester = createDigester(secure);
             digester.setClassLoader(CloverCoverageParser.class.getClassLoader());
             digester.addObjectCreate("coverage/project", ProjectCoverage.class);
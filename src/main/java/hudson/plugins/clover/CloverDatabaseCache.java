@@ -0,0 +1,114 @@
+package hudson.plugins.clover;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Keeps the Clover database (<code>.clover/clover.db</code>) of a workspace between builds, so that only the sources
+ * changed since the previous build have to be instrumented again. The database is reused when it was created with the
+ * same fingerprint (Clover version and integration settings); otherwise it is restored from the copy kept on the
+ * controller, and if that does not match either, the build starts from a clean database.
+ * <p>
+ * Coverage recordings are always removed before a build, only the database itself is kept.
+ */
+final class CloverDatabaseCache {
+
+    static final String DATABASE = "clover.db";
+    static final String FINGERPRINT = "clover.fingerprint";
+    /** Coverage recordings and other files Clover writes next to the database. */
+    private static final String RECORDINGS = DATABASE + "?*";
+
+    /** Where the database is kept in the workspace. */
+    private final FilePath dir;
+    /** Where the database is kept on the controller, without extension. */
+    private final File stored;
+    private final String fingerprint;
+
+    /**
+     * @param workspace   the workspace of the build
+     * @param stored      the location of the copy kept on the controller, without extension
+     * @param fingerprint identifies the Clover version and configuration the database has to be created with
+     */
+    CloverDatabaseCache(FilePath workspace, File stored, String fingerprint) {
+        this.dir = workspace.child(".clover");
+        this.stored = stored;
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Prepares the database of the workspace before the build.
+     */
+    void restore(TaskListener listener) throws IOException, InterruptedException {
+        for (FilePath recording : dir.exists() ? dir.list(RECORDINGS) : new FilePath[0]) {
+            recording.delete();
+        }
+        if (matches(dir.child(FINGERPRINT)) && dir.child(DATABASE).exists()) {
+            listener.getLogger().println("Reusing the Clover database of the workspace");
+            return;
+        }
+        dir.child(DATABASE).delete();
+        dir.child(FINGERPRINT).delete();
+
+        final File archive = getArchive();
+        if (archive.isFile() && matches(new FilePath(getFingerprintFile()))) {
+            listener.getLogger().println("Restoring the Clover database of the previous build");
+            dir.mkdirs();
+            try (InputStream in = new BufferedInputStream(new FileInputStream(archive))) {
+                dir.untarFrom(in, FilePath.TarCompression.NONE);
+            }
+        } else {
+            listener.getLogger().println("Instrumenting from a clean Clover database");
+        }
+    }
+
+    /**
+     * Records the database of the workspace after the build, both in the workspace and on the controller.
+     */
+    void save() throws IOException, InterruptedException {
+        if (!dir.child(DATABASE).exists()) {
+            return;
+        }
+        dir.child(FINGERPRINT).write(fingerprint, "UTF-8");
+
+        final File parent = stored.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create " + parent);
+        }
+        // never leave a fingerprint next to an archive it does not describe
+        Files.deleteIfExists(getFingerprintFile().toPath());
+        // a temporary file of its own, as concurrent builds of the branch save the same database
+        final Path tmp = Files.createTempFile(parent.toPath(), stored.getName(), ".tmp");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                dir.tar(out, DATABASE + "," + FINGERPRINT);
+            }
+            Files.move(tmp, getArchive().toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+        Files.write(getFingerprintFile().toPath(), fingerprint.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean matches(FilePath fingerprintFile) throws IOException, InterruptedException {
+        return fingerprintFile.exists() && fingerprint.equals(fingerprintFile.readToString().trim());
+    }
+
+    private File getArchive() {
+        return new File(stored.getParentFile(), stored.getName() + ".tar");
+    }
+
+    private File getFingerprintFile() {
+        return new File(stored.getParentFile(), stored.getName() + ".fingerprint");
+    }
+}
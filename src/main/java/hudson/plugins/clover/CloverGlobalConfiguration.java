@@ -0,0 +1,116 @@
+package hudson.plugins.clover;
+
+import hudson.Extension;
+import hudson.ExtensionList;
+import hudson.plugins.clover.graphs.TrendWindow;
+import jenkins.model.GlobalConfiguration;
+import net.sf.json.JSONObject;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundSetter;
+import org.kohsuke.stapler.StaplerRequest2;
+
+/**
+ * Instance wide settings of the Clover plugin, shown on the system configuration page.
+ */
+@Extension
+@Symbol("clover")
+public class CloverGlobalConfiguration extends GlobalConfiguration {
+
+    /** Default upper bound of the estimated number of results nodes kept in memory. */
+    static final int DEFAULT_MAX_CACHE_WEIGHT = 1000000;
+
+    /** Default number of minutes a report is kept in memory after it was last used. */
+    static final int DEFAULT_CACHE_EXPIRE_MINUTES = 60;
+
+    /** Default number of latest builds shown one by one in coverage trends. */
+    static final int DEFAULT_TREND_BUILDS = 100;
+
+    private int maxCacheWeight = DEFAULT_MAX_CACHE_WEIGHT;
+    private int cacheExpireMinutes = DEFAULT_CACHE_EXPIRE_MINUTES;
+    private boolean softCacheValues;
+    private int trendBuilds = DEFAULT_TREND_BUILDS;
+    private TrendWindow.Downsampling trendDownsampling = TrendWindow.Downsampling.DAY;
+
+    public CloverGlobalConfiguration() {
+        load();
+        applyCacheSettings();
+    }
+
+    public static CloverGlobalConfiguration get() {
+        return ExtensionList.lookupSingleton(CloverGlobalConfiguration.class);
+    }
+
+    /**
+     * Gets the upper bound of the estimated number of package, file and class nodes of all reports kept in memory.
+     * Reports used least recently are dropped first; <code>0</code> means no bound.
+     */
+    public int getMaxCacheWeight() {
+        return maxCacheWeight;
+    }
+
+    @DataBoundSetter
+    public void setMaxCacheWeight(int maxCacheWeight) {
+        this.maxCacheWeight = Math.max(0, maxCacheWeight);
+    }
+
+    /**
+     * Gets the number of minutes a report is kept in memory after it was last used; <code>0</code> means until it
+     * is evicted by size.
+     */
+    public int getCacheExpireMinutes() {
+        return cacheExpireMinutes;
+    }
+
+    @DataBoundSetter
+    public void setCacheExpireMinutes(int cacheExpireMinutes) {
+        this.cacheExpireMinutes = Math.max(0, cacheExpireMinutes);
+    }
+
+    /**
+     * Whether reports kept in memory may also be reclaimed by the garbage collector when the heap runs low.
+     */
+    public boolean isSoftCacheValues() {
+        return softCacheValues;
+    }
+
+    @DataBoundSetter
+    public void setSoftCacheValues(boolean softCacheValues) {
+        this.softCacheValues = softCacheValues;
+    }
+
+    /**
+     * Gets the number of latest builds shown one by one in coverage trends; <code>0</code> means all builds.
+     */
+    public int getTrendBuilds() {
+        return trendBuilds;
+    }
+
+    @DataBoundSetter
+    public void setTrendBuilds(int trendBuilds) {
+        this.trendBuilds = Math.max(0, trendBuilds);
+    }
+
+    /**
+     * Gets how coverage trends show the builds before the latest {@link #getTrendBuilds()} ones.
+     */
+    public TrendWindow.Downsampling getTrendDownsampling() {
+        return trendDownsampling == null ? TrendWindow.Downsampling.DAY : trendDownsampling;
+    }
+
+    @DataBoundSetter
+    public void setTrendDownsampling(TrendWindow.Downsampling trendDownsampling) {
+        this.trendDownsampling = trendDownsampling;
+    }
+
+    @Override
+    public boolean configure(StaplerRequest2 req, JSONObject json) throws FormException {
+        req.bindJSON(this, json);
+        save();
+        applyCacheSettings();
+        return true;
+    }
+
+    private void applyCacheSettings() {
+        CloverBuildAction.configureReportCache(maxCacheWeight, cacheExpireMinutes, softCacheValues);
+    }
+}
@@ -4,7 +4,9 @@ package hudson.plugins.clover;
 import hudson.FilePath;
 import hudson.model.DirectoryBrowserSupport;
 import hudson.model.Run;
+import java.io.File;
 import jenkins.model.RunAction2;
+import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
 
@@ -30,10 +32,38 @@ public class CloverHtmlBuildAction implements RunAction2 {
         return Messages.CloverHtmlBuildAction_DisplayName();
     }
 
-    public DirectoryBrowserSupport doDynamic(StaplerRequest2 req, StaplerResponse2 rsp) {
+    public HttpResponse doDynamic(StaplerRequest2 req, StaplerResponse2 rsp) {
+        final HttpResponse stored = serveStoredReport(build);
+        if (stored != null) {
+            return stored;
+        }
         return new DirectoryBrowserSupport(this, new FilePath(build.getRootDir()), "Clover Html Report", CloverProjectAction.ICON, false);
     }
 
+    /**
+     * Creates a response serving the HTML report of the given build when it is not stored as plain files.
+     *
+     * @return the response, <code>null</code> if the report is stored as files (or there is none)
+     * @see HtmlReportStorage
+     */
+    static HttpResponse serveStoredReport(Run<?, ?> build) {
+        if (HtmlReportArchive.exists(build)) {
+            return HtmlReportArchive.serve(build);
+        }
+        if (HtmlReportBlobStore.exists(build)) {
+            return HtmlReportBlobStore.serve(build);
+        }
+        return null;
+    }
+
+    /**
+     * Whether the build directory holds an HTML report not stored as plain files.
+     */
+    static boolean hasStoredReport(File buildRootDir) {
+        return new File(buildRootDir, HtmlReportArchive.FILE_NAME).exists()
+                || HtmlReportBlobStore.getManifestFile(buildRootDir).exists();
+    }
+
     public String getIconFileName() {
         return CloverProjectAction.ICON;
     }
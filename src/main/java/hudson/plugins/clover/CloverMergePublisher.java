@@ -0,0 +1,203 @@
+package hudson.plugins.clover;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.Launcher;
+import hudson.Util;
+import hudson.model.AbstractProject;
+import hudson.model.Result;
+import hudson.model.Run;
+import hudson.model.TaskListener;
+import hudson.plugins.clover.results.ProjectCoverage;
+import hudson.plugins.clover.slave.UnionCoverageFilesCallable;
+import hudson.plugins.clover.targets.CoverageTarget;
+import hudson.tasks.BuildStepDescriptor;
+import hudson.tasks.BuildStepMonitor;
+import hudson.tasks.Publisher;
+import hudson.tasks.Recorder;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import jenkins.tasks.SimpleBuildStep;
+import org.jenkinsci.Symbol;
+import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.DataBoundSetter;
+
+/**
+ * Merges the Clover reports of the shards of a test run into one report with its own reportId, health and trend.
+ * The shards are either clover.xml files in the workspace (e.g. unstashed from the shard agents) or reports already
+ * published to the build under other reportIds. See {@link LineCoverageUnion} for how they are merged.
+ */
+public class CloverMergePublisher extends Recorder implements SimpleBuildStep {
+
+    private final String reportId;
+    private String reportPattern;
+    private String reportIds;
+
+    private CoverageTarget healthyTarget = new CoverageTarget();
+    private CoverageTarget unhealthyTarget = new CoverageTarget();
+    private CoverageTarget failingTarget = new CoverageTarget();
+
+    /**
+     * @param reportId the reportId of the merged report
+     */
+    @DataBoundConstructor
+    public CloverMergePublisher(String reportId) {
+        this.reportId = CloverPublisher.checkReportId(Util.fixNull(reportId).trim());
+    }
+
+    public String getReportId() {
+        return reportId;
+    }
+
+    /**
+     * Gets the Ant style pattern of the shard reports in the workspace, e.g. <code>shards/*&#47;clover.xml</code>.
+     */
+    public String getReportPattern() {
+        return reportPattern;
+    }
+
+    @DataBoundSetter
+    public void setReportPattern(String reportPattern) {
+        this.reportPattern = Util.fixEmptyAndTrim(reportPattern);
+    }
+
+    /**
+     * Gets the reportIds of the reports published earlier in the same build to merge, separated by commas or spaces.
+     */
+    public String getReportIds() {
+        return reportIds;
+    }
+
+    @DataBoundSetter
+    public void setReportIds(String reportIds) {
+        this.reportIds = Util.fixEmptyAndTrim(reportIds);
+    }
+
+    public CoverageTarget getHealthyTarget() {
+        return healthyTarget;
+    }
+
+    @DataBoundSetter
+    public void setHealthyTarget(CoverageTarget healthyTarget) {
+        this.healthyTarget = healthyTarget;
+    }
+
+    public CoverageTarget getUnhealthyTarget() {
+        return unhealthyTarget;
+    }
+
+    @DataBoundSetter
+    public void setUnhealthyTarget(CoverageTarget unhealthyTarget) {
+        this.unhealthyTarget = unhealthyTarget;
+    }
+
+    public CoverageTarget getFailingTarget() {
+        return failingTarget;
+    }
+
+    @DataBoundSetter
+    public void setFailingTarget(CoverageTarget failingTarget) {
+        this.failingTarget = failingTarget;
+    }
+
+    @Override
+    public void perform(
+            @NonNull Run<?, ?> run,
+            @NonNull FilePath workspace,
+            @NonNull Launcher launcher,
+            @NonNull TaskListener listener)
+            throws InterruptedException, IOException {
+        final Result result = run.getResult();
+        if (result != null && result.isWorseOrEqualTo(Result.FAILURE)) {
+            listener.getLogger().println("No merged Clover report will be published due to a build failure");
+            return;
+        }
+        listener.getLogger().println(String.format("Merging Clover coverage reports%s...", CloverPublisher.forReport(reportId)));
+
+        long phase = System.nanoTime();
+        final LineCoverageUnion union;
+        String workspacePath = null;
+        if (reportPattern != null) {
+            final UnionCoverageFilesCallable.Union shards = workspace.act(new UnionCoverageFilesCallable(reportPattern));
+            for (String file : shards.getFiles()) {
+                listener.getLogger().println("    " + file);
+            }
+            union = shards.getUnion();
+            workspacePath = shards.getWorkspacePath();
+        } else {
+            union = new LineCoverageUnion();
+        }
+        for (String id : getReportIdList()) {
+            final File xml = CloverPublisher.getCloverXmlReport(run, id);
+            if (!xml.isFile()) {
+                listener.getLogger().println("    no Clover XML report was published for " + id + ", skipped");
+                continue;
+            }
+            try (InputStream in = new BufferedInputStream(new FileInputStream(xml))) {
+                union.add(in);
+            }
+            listener.getLogger().println("    " + id);
+            if (workspacePath == null) {
+                workspacePath = getBuildBaseDir(run, id);
+            }
+        }
+
+        if (union.getReportCount() == 0) {
+            listener.getLogger().println("Could not find any Clover report to merge.");
+            return;
+        }
+        final String pathPrefix = workspacePath == null ? null : CloverPublisher.withTrailingSeparator(workspacePath);
+        final ProjectCoverage merged = union.toProjectCoverage(pathPrefix);
+        CloverPublisher.recordPhase("merge", phase);
+        listener.getLogger().println(String.format("Merged %d Clover XML reports", union.getReportCount()));
+
+        CloverPublisher.publishResult(run, pathPrefix, merged, reportId, healthyTarget, unhealthyTarget, failingTarget, listener);
+    }
+
+    private List<String> getReportIdList() {
+        final List<String> ids = new ArrayList<>();
+        if (reportIds != null) {
+            for (String id : reportIds.split("[,\\s]+")) {
+                if (!id.isEmpty()) {
+                    ids.add(CloverPublisher.checkReportId(id));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static String getBuildBaseDir(Run<?, ?> run, String reportId) {
+        for (CloverBuildAction action : run.getActions(CloverBuildAction.class)) {
+            if (reportId.equals(action.getReportId())) {
+                return action.getBuildBaseDir();
+            }
+        }
+        return null;
+    }
+
+    public BuildStepMonitor getRequiredMonitorService() {
+        return BuildStepMonitor.NONE;
+    }
+
+    @Extension
+    @Symbol("cloverMerge")
+    public static final class DescriptorImpl extends BuildStepDescriptor<Publisher> {
+
+        @NonNull
+        @Override
+        public String getDisplayName() {
+            return Messages.CloverMergePublisher_DisplayName();
+        }
+
+        @Override
+        public boolean isApplicable(Class<? extends AbstractProject> jobType) {
+            return true;
+        }
+    }
+}
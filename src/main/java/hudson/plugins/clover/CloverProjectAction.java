@@ -1,17 +1,29 @@
 package hudson.plugins.clover;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import hudson.FilePath;
+import hudson.Util;
 import hudson.model.Job;
 import hudson.model.ProminentProjectAction;
 import hudson.model.Run;
 import hudson.model.Result;
 import hudson.model.DirectoryBrowserSupport;
 import hudson.model.Actionable;
+import hudson.plugins.clover.graphs.CoverageTrendStore;
+import hudson.plugins.clover.graphs.TrendChart;
+import hudson.plugins.clover.graphs.TrendWindow;
 import hudson.util.Graph;
+import jakarta.servlet.http.HttpServletResponse;
+import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 
 /**
  * Project level action.
@@ -22,6 +34,9 @@ public class CloverProjectAction extends Actionable implements ProminentProjectA
 
     static final String ICON = "/plugin/clover/clover_48x48.png";
     
+    /** Rendered trends, keyed by {@link #getTrendKey}. */
+    private static final Cache<String, byte[]> TRENDS = CacheBuilder.newBuilder().maximumSize(256).build();
+
     private transient final Job<?, ?> project;
 
     public CloverProjectAction(Job<?,?> project) {
@@ -33,6 +48,7 @@ public class CloverProjectAction extends Actionable implements ProminentProjectA
         final File reportDir = getLastBuildReportDir();
         if (reportDir != null &&
              (new File(reportDir, "index.html").exists()
+           || CloverHtmlBuildAction.hasStoredReport(reportDir)
            || new File(reportDir, "clover.pdf").exists()
            || new File(reportDir, "clover.xml").exists())) {
             return ICON;
@@ -54,7 +70,8 @@ public class CloverProjectAction extends Actionable implements ProminentProjectA
         final File reportDir = getLastBuildReportDir();
 
         if (reportDir == null) return null;
-        if (new File(reportDir, "index.html").exists()) return Messages.CloverProjectAction_HTML_DisplayName();
+        if (new File(reportDir, "index.html").exists()
+                || CloverHtmlBuildAction.hasStoredReport(reportDir)) return Messages.CloverProjectAction_HTML_DisplayName();
         if (new File(reportDir, "clover.pdf").exists()) return Messages.CloverProjectAction_PDF_DisplayName();
         if (new File(reportDir, "clover.xml").exists()) return Messages.CloverProjectAction_XML_DisplayName();
 
@@ -86,14 +103,105 @@ public class CloverProjectAction extends Actionable implements ProminentProjectA
     public Graph getTrendGraph() {
         CloverBuildAction action= getLastSuccessfulResult();
         if (action != null)
-            return action.getResult().getTrendGraph();
+            return action.getTrendGraph();
         return null;
     }
 
-    public DirectoryBrowserSupport doDynamic(StaplerRequest2 req, StaplerResponse2 rsp) {
+    /**
+     * Serves the coverage trend of the job as SVG (default) or, with <code>format=json</code>, as JSON series. The
+     * trend is read from the {@link CoverageTrendStore} and limited to the {@link TrendWindow}; rendered responses are
+     * cached per job, last build, size, format and window and carry an <code>ETag</code> so clients revalidate
+     * instead of fetching them again. Only the <code>ETag</code> is used for revalidation, as the modification time
+     * of the store does not reflect changes of the last build or the configured window.
+     */
+    public void doTrend(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        final String reportId;
+        try {
+            reportId = getTrendReportId(req);
+        } catch (IllegalArgumentException e) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        final File trend = CoverageTrendStore.getFile(project, reportId);
+        final Run<?, ?> lastBuild = project.getLastBuild();
+        if (!trend.isFile() || lastBuild == null) {
+            rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        final boolean json = "json".equals(req.getParameter("format"));
+        final int width = getSize(req, "width", 500);
+        final int height = getSize(req, "height", 200);
+        final TrendWindow window = TrendWindow.forRequest(req);
+
+        final long lastModified = trend.lastModified();
+        final String key = getTrendKey(reportId, lastBuild.getNumber(), trend.length(), lastModified, width, height,
+                json, window);
+        final String etag = '"' + Util.getDigestOf(key) + '"';
+        rsp.setHeader("ETag", etag);
+        rsp.setHeader("Cache-Control", "no-cache");
+        if (etag.equals(req.getHeader("If-None-Match"))) {
+            rsp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        final byte[] body;
+        try {
+            body = TRENDS.get(key, () -> {
+                final List<CoverageTrendStore.Entry> entries =
+                        CoverageTrendStore.read(project, reportId, lastBuild.getNumber(), window);
+                return (json ? TrendChart.toJSON(entries).toString() : TrendChart.toSvg(entries, width, height))
+                        .getBytes(StandardCharsets.UTF_8);
+            });
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+        rsp.setContentType(json ? "application/json;charset=UTF-8" : "image/svg+xml;charset=UTF-8");
+        rsp.setContentLength(body.length);
+        rsp.getOutputStream().write(body);
+    }
+
+    /**
+     * Gets the key of a rendered trend: everything the response depends on, joined with a character which can
+     * appear in neither job names nor reportIds.
+     */
+    private String getTrendKey(String reportId, int build, long length, long lastModified, int width, int height,
+                               boolean json, TrendWindow window) {
+        return String.join("|", project.getFullName(), String.valueOf(reportId), String.valueOf(build),
+                String.valueOf(length), String.valueOf(lastModified), width + "x" + height, json ? "json" : "svg",
+                window.toString());
+    }
+
+    /**
+     * Gets the reportId requested, that of the last successful result by default.
+     *
+     * @throws IllegalArgumentException if the requested reportId is not valid
+     */
+    private String getTrendReportId(StaplerRequest2 req) {
+        final String reportId = req.getParameter("reportId");
+        if (reportId != null) {
+            return reportId.isEmpty() ? reportId : CloverPublisher.checkReportId(reportId);
+        }
+        final CloverBuildAction action = getLastSuccessfulResult();
+        return action == null ? null : action.getReportId();
+    }
+
+    private static int getSize(StaplerRequest2 req, String name, int defaultValue) {
+        try {
+            final String value = req.getParameter(name);
+            return value == null ? defaultValue : Math.max(100, Math.min(2000, Integer.parseInt(value)));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    public HttpResponse doDynamic(StaplerRequest2 req, StaplerResponse2 rsp) {
 
         // there is a report if there was a build already, and there is a report
         if (project.getLastBuild() != null && getDisplayName() != null) {
+            final HttpResponse stored = CloverHtmlBuildAction.serveStoredReport(project.getLastBuild());
+            if (stored != null) {
+                return stored;
+            }
             return new DirectoryBrowserSupport(this,
                     new FilePath(project.getLastBuild().getRootDir()),"Clover Html Report",  "/clover/clover.gif", false);
 
@@ -10,17 +10,32 @@ import hudson.model.AbstractProject;
 import hudson.model.Result;
 import hudson.model.Run;
 import hudson.model.TaskListener;
+import hudson.plugins.clover.results.CoverageDelta;
+import hudson.plugins.clover.results.CoverageRanking;
+import hudson.plugins.clover.results.CoverageSnapshot;
+import hudson.plugins.clover.results.LineCoverageStore;
+import hudson.plugins.clover.results.FileCoverage;
+import hudson.plugins.clover.results.PackageCoverage;
 import hudson.plugins.clover.results.ProjectCoverage;
-import hudson.plugins.clover.slave.GetPathFileCallable;
+import hudson.plugins.clover.results.SourcePage;
+import hudson.plugins.clover.slave.DiscoverReportCallable;
+import hudson.plugins.clover.slave.ParseCoverageFileCallable;
+import hudson.plugins.clover.slave.ParseCoverageFilesCallable;
+import hudson.plugins.clover.slave.ZipFilesCallable;
 import hudson.plugins.clover.targets.CoverageMetric;
 import hudson.plugins.clover.targets.CoverageTarget;
+import hudson.remoting.RemoteOutputStream;
 import hudson.tasks.BuildStepDescriptor;
 import hudson.tasks.BuildStepMonitor;
 import hudson.tasks.Publisher;
 import hudson.tasks.Recorder;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 import java.util.regex.Pattern;
@@ -51,6 +66,10 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
     private CoverageTarget healthyTarget;
     private CoverageTarget unhealthyTarget;
     private CoverageTarget failingTarget;
+    private HtmlReportStorage htmlStorage;
+    private String reportSearchPattern;
+    private String cloverReportPattern;
+    private boolean archiveSources;
 
     public CloverPublisher(String cloverReportDir, String cloverReportFileName) {
         this.cloverReportDir = cloverReportDir;
@@ -96,13 +115,22 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
     @DataBoundSetter
     public void setReportId(String reportId) {
         if (reportId != null && !reportId.trim().isEmpty()) {
-            String trimmed = reportId.trim();
-            if (!VALID_REPORT_ID_PATTERN.matcher(trimmed).matches()) {
-                throw new IllegalArgumentException("Invalid reportId '" + trimmed
-                        + "': must contain only alphanumeric, hyphens, and underscores.");
-            }
-            this.reportId = trimmed;
+            this.reportId = checkReportId(reportId.trim());
+        }
+    }
+
+    /**
+     * Checks that a reportId is safe to use in file names and URLs.
+     *
+     * @return the reportId
+     * @throws IllegalArgumentException if it is not
+     */
+    static String checkReportId(String reportId) {
+        if (!VALID_REPORT_ID_PATTERN.matcher(reportId).matches()) {
+            throw new IllegalArgumentException("Invalid reportId '" + reportId
+                    + "': must contain only alphanumeric, hyphens, and underscores.");
         }
+        return reportId;
     }
 
     /**
@@ -159,6 +187,62 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
         this.failingTarget = failingTarget;
     }
 
+    /**
+     * Gets the glob of the directories below the workspace and the report directory searched when the report
+     * directory, the XML report or the HTML report are not found directly.
+     *
+     * @return the pattern, {@value DiscoverReportCallable#DEFAULT_SEARCH_PATTERN} (one level deep) by default
+     */
+    public String getReportSearchPattern() {
+        return reportSearchPattern == null ? DiscoverReportCallable.DEFAULT_SEARCH_PATTERN : reportSearchPattern;
+    }
+
+    @DataBoundSetter
+    public void setReportSearchPattern(String reportSearchPattern) {
+        this.reportSearchPattern = Util.fixEmptyAndTrim(reportSearchPattern);
+    }
+
+    /**
+     * Gets the Ant style pattern of the clover.xml files below the workspace which are merged into one report,
+     * e.g. <code>**&#47;target/site/clover/clover.xml</code> for a multi-module build.
+     *
+     * @return the pattern, <code>null</code> when a single report is published from the report directory
+     */
+    public String getCloverReportPattern() {
+        return cloverReportPattern;
+    }
+
+    @DataBoundSetter
+    public void setCloverReportPattern(String cloverReportPattern) {
+        this.cloverReportPattern = Util.fixEmptyAndTrim(cloverReportPattern);
+    }
+
+    /**
+     * Whether the source files of the report are archived with it, so the file pages can show them.
+     */
+    public boolean isArchiveSources() {
+        return archiveSources;
+    }
+
+    @DataBoundSetter
+    public void setArchiveSources(boolean archiveSources) {
+        this.archiveSources = archiveSources;
+    }
+
+    /**
+     * Gets how the HTML report is stored in the build directory.
+     *
+     * @return the storage mode, {@link HtmlReportStorage#FILES} unless configured otherwise
+     */
+    public HtmlReportStorage getHtmlStorage() {
+        return htmlStorage == null ? HtmlReportStorage.FILES : htmlStorage;
+    }
+
+    @DataBoundSetter
+    public void setHtmlStorage(HtmlReportStorage htmlStorage) {
+        this.htmlStorage = htmlStorage == HtmlReportStorage.FILES ? null : htmlStorage;
+    }
+
     /**
      * Gets the directory where the Clover Report is stored for the given build.
      */
@@ -177,6 +261,14 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
         return (reportId == null || reportId.isEmpty()) ? "clover.xml" : "clover-" + reportId + ".xml";
     }
 
+    /**
+     * Gets the binary coverage snapshot stored next to the clover.xml of the given build with a specific reportId.
+     */
+    static File getCloverSnapshotFile(Run<?, ?> build, String reportId) {
+        return new File(build.getRootDir(),
+                (reportId == null || reportId.isEmpty()) ? "clover.snapshot" : "clover-" + reportId + ".snapshot");
+    }
+
     static String forReport(String reportId) {
         return (reportId == null || reportId.isEmpty()) ? "" : " for " + reportId;
     }
@@ -193,6 +285,16 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
 
     private void performImpl(Run<?, ?> run, FilePath workspace, TaskListener listener)
             throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        try {
+            publish(run, workspace, listener);
+        } finally {
+            CloverStatistics.get().recordPublishPhase("total", System.nanoTime() - start);
+        }
+    }
+
+    private void publish(Run<?, ?> run, FilePath workspace, TaskListener listener)
+            throws IOException, InterruptedException {
         final EnvVars env = run.getEnvironment(listener);
         final File buildRootDir = run.getRootDir();
         final FilePath buildTarget = new FilePath(buildRootDir);
@@ -200,14 +302,22 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
         FilePath coverageReportDir = workspace.child(reportDir);
         try {
             listener.getLogger().println("Publishing Clover coverage report...");
+            if (cloverReportPattern != null) {
+                publishMerged(run, workspace, env.expand(cloverReportPattern), listener);
+                return;
+            }
 
-            if (!coverageReportDir.exists()) {
-                coverageReportDir = findOneDirDeep(workspace, reportDir);
+            long phase = System.nanoTime();
+            final DiscoverReportCallable.ReportLocation location = workspace.act(new DiscoverReportCallable(
+                    reportDir, env.expand(getCloverReportFileName()), getReportSearchPattern()));
+            phase = recordPhase("discover", phase);
+            if (location.getReportDir() != null) {
+                coverageReportDir = new FilePath(workspace.getChannel(), location.getReportDir());
             }
 
             final Result result = run.getResult();
             final boolean buildFailure = result != null && result.isWorseOrEqualTo(Result.FAILURE);
-            final boolean missingReport = !coverageReportDir.exists();
+            final boolean missingReport = location.getReportDir() == null;
 
             if (buildFailure || missingReport) {
                 listener.getLogger().println("No Clover report will be published due to a "
@@ -215,13 +325,21 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
                 return;
             }
 
-            final boolean htmlExists = copyHtmlReport(coverageReportDir, buildTarget, listener);
-            copyXmlReport(coverageReportDir, buildTarget, listener, env.expand(getCloverReportFileName()));
+            final boolean htmlExists = copyHtmlReport(run, location, coverageReportDir, buildTarget, listener);
+            phase = recordPhase("copyHtml", phase);
+            final FilePath cloverXmlPath = location.getXmlFile() == null
+                    ? null : new FilePath(workspace.getChannel(), location.getXmlFile());
+            final boolean xmlExists = copyXmlReport(cloverXmlPath, coverageReportDir, buildTarget, listener);
+            recordPhase("copyXml", phase);
 
             if (htmlExists) {
                 run.addAction(new CloverHtmlBuildAction());
             }
-            processCloverXml(run, workspace, listener, coverageReportDir, buildTarget);
+            if (xmlExists) {
+                processCloverXml(run, location, listener, cloverXmlPath);
+            } else {
+                flagMissingCloverXml(listener);
+            }
 
         } catch (IOException e) {
             Util.displayIOException(e, listener);
@@ -231,61 +349,196 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
     }
 
     /**
-     * Process the clover.xml from the build directory. The clover.xml already copied to the build dir.
+     * Process the clover.xml from the workspace. The report is parsed on the node which holds it and only the
+     * resulting coverage tree is sent to the controller.
      */
-    private void processCloverXml(
-            Run<?, ?> build, FilePath workspace, TaskListener listener, FilePath coverageReport, FilePath buildTarget)
-            throws InterruptedException {
+    private void processCloverXml(Run<?, ?> build, DiscoverReportCallable.ReportLocation location,
+                                  TaskListener listener, FilePath cloverXmlPath)
+            throws IOException, InterruptedException {
         listener.getLogger().println(String.format("Processing Clover XML report%s ...", forReport(reportId)));
 
-        final String workspacePath = withTrailingSeparator(getWorkspacePath(listener, workspace));
+        final String workspacePath = withTrailingSeparator(location.getWorkspacePath());
 
-        final File cloverXmlReport = getCloverXmlReport(build, reportId);
-        if (cloverXmlReport.exists()) {
-            ProjectCoverage result = null;
+        final ProjectCoverage result;
+        long phase = System.nanoTime();
+        try {
+            result = parseCloverXml(build, cloverXmlPath, workspacePath);
+            // includes sending the tree and the line coverage back from the agent
+            CloverStatistics.get().recordParse(location.getXmlSize(), System.nanoTime() - phase);
+        } catch (IOException e) {
+            Util.displayIOException(e, listener);
+            e.printStackTrace(listener.fatalError("Unable to parse coverage from " + cloverXmlPath));
+            build.setResult(Result.FAILURE);
+            return;
+        }
+        phase = recordPhase("parse", phase);
+
+        if (archiveSources) {
             try {
-                result = CloverCoverageParser.parse(cloverXmlReport, workspacePath);
+                final int archived = archiveSources(build,
+                        new FilePath(cloverXmlPath.getChannel(), location.getWorkspacePath()), result);
+                listener.getLogger().println(String.format("Archived %d source files", archived));
             } catch (IOException e) {
-                Util.displayIOException(e, listener);
-                e.printStackTrace(listener.fatalError("Unable to copy coverage from " + coverageReport + " to " + buildTarget));
-                build.setResult(Result.FAILURE);
+                listener.getLogger().println("Unable to archive the sources: " + e.getMessage());
             }
+            recordPhase("sources", phase);
+        }
 
-            listener.getLogger().println(String.format("Publishing Clover coverage results%s...", forReport(reportId)));
-            build.addAction(CloverBuildAction.load(workspacePath, result, reportId, healthyTarget, unhealthyTarget));
+        publishResult(build, workspacePath, result, reportId, healthyTarget, unhealthyTarget, failingTarget, listener);
+    }
+
+    /**
+     * Parses the clover.xml on the node which holds it, streaming the line coverage read in the same pass into the
+     * {@link LineCoverageStore} of the build. The store is written to a temporary file first, so a failed transfer
+     * leaves no partial store.
+     *
+     * @return the coverage tree
+     */
+    private ProjectCoverage parseCloverXml(Run<?, ?> build, FilePath cloverXmlPath, String workspacePath)
+            throws IOException, InterruptedException {
+        final File file = LineCoverageStore.getFile(build, reportId);
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            final ProjectCoverage result;
+            try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+                result = cloverXmlPath.act(new ParseCoverageFileCallable(workspacePath,
+                        CloverCoverageParser.Mode.getDefault(), new RemoteOutputStream(os)));
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return result;
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
 
-            final Set<CoverageMetric> failingMetrics = getFailingMetrics(result);
-            if (!failingMetrics.isEmpty()) {
-                logFailingMetrics(listener, failingMetrics);
-                build.setResult(Result.UNSTABLE);
+    /**
+     * Archives the source files of the report, compressed, into the build so the file pages can show them. Only
+     * files below the workspace are archived.
+     *
+     * @return the number of files archived
+     */
+    private int archiveSources(Run<?, ?> build, FilePath workspace, ProjectCoverage result)
+            throws IOException, InterruptedException {
+        final List<String> paths = new ArrayList<>();
+        for (PackageCoverage p : result.getPackageCoverages()) {
+            for (FileCoverage f : p.getFileCoverages()) {
+                paths.add(f.getName());
+            }
+        }
+        final File file = SourcePage.getArchive(build, reportId);
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            final int archived;
+            try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+                archived = workspace.act(new ZipFilesCallable(paths, new RemoteOutputStream(os)));
             }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return archived;
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
 
-        } else {
-            flagMissingCloverXml(listener);
+    /**
+     * Parses and merges all clover.xml files matching <code>pattern</code> in the workspace. Neither the XML nor the
+     * HTML reports are copied, the coverage snapshot written for the merged tree is the only record of the report.
+     */
+    private void publishMerged(Run<?, ?> build, FilePath workspace, String pattern, TaskListener listener)
+            throws IOException, InterruptedException {
+        final Result buildResult = build.getResult();
+        if (buildResult != null && buildResult.isWorseOrEqualTo(Result.FAILURE)) {
+            listener.getLogger().println("No Clover report will be published due to a build failure");
+            return;
+        }
+
+        long phase = System.nanoTime();
+        final ParseCoverageFilesCallable.MergedCoverage merged =
+                workspace.act(new ParseCoverageFilesCallable(pattern, CloverCoverageParser.Mode.getDefault()));
+        if (merged.getCoverage() == null) {
+            listener.getLogger().println("Could not find any Clover XML report matching '" + pattern + "' in the workspace.");
+            return;
+        }
+        recordPhase("parse", phase);
+        listener.getLogger().println(String.format("Merged %d Clover XML reports%s:", merged.getFiles().size(), forReport(reportId)));
+        for (String file : merged.getFiles()) {
+            listener.getLogger().println("    " + file);
         }
+
+        publishResult(build, withTrailingSeparator(merged.getWorkspacePath()), merged.getCoverage(),
+                reportId, healthyTarget, unhealthyTarget, failingTarget, listener);
     }
 
-    @NonNull
-    private String getWorkspacePath(TaskListener listener, FilePath workspace) throws InterruptedException {
+    /**
+     * Stores the parsed coverage of the build, attaches it to the build and checks the failing targets.
+     *
+     * @throws IOException if the coverage snapshot cannot be written and no clover.xml was kept to rebuild it from
+     */
+    static void publishResult(Run<?, ?> build, String workspacePath, ProjectCoverage result, String reportId,
+                              CoverageTarget healthyTarget, CoverageTarget unhealthyTarget, CoverageTarget failingTarget,
+                              TaskListener listener) throws IOException {
+        long phase = System.nanoTime();
         try {
-            return workspace.act(new GetPathFileCallable());
+            CoverageSnapshot.write(result, getCloverSnapshotFile(build, reportId));
         } catch (IOException e) {
-            listener.getLogger().println("IOException when checking workspace path:" + e.getMessage());
-            return "";
+            if (!getCloverXmlReport(build, reportId).isFile()) {
+                // merged reports keep no clover.xml, the snapshot is their only copy
+                throw new IOException("Unable to store the Clover coverage report" + forReport(reportId), e);
+            }
+            // not fatal, the snapshot is rebuilt from the clover.xml on the next load
+            listener.getLogger().println("Unable to write coverage snapshot: " + e.getMessage());
+        }
+        phase = recordPhase("snapshot", phase);
+
+        listener.getLogger().println(String.format("Publishing Clover coverage results%s...", forReport(reportId)));
+        final CloverBuildAction action = CloverBuildAction.load(workspacePath, result, reportId, healthyTarget, unhealthyTarget);
+        build.addAction(action);
+        try {
+            action.recordTrend(result);
+        } catch (IOException e) {
+            listener.getLogger().println("Unable to record coverage trend: " + e.getMessage());
+        }
+        phase = recordPhase("trend", phase);
+
+        final CloverBuildAction previous = action.getPreviousResult();
+        final ProjectCoverage previousResult = previous == null ? null : previous.getResult();
+        action.setRanking(CoverageRanking.compute(result, previousResult, CoverageRanking.SIZE));
+        phase = recordPhase("ranking", phase);
+
+        if (previousResult != null && previousResult.getOwner() != null) {
+            try {
+                CoverageDelta.compute(result, previousResult, previousResult.getOwner().getNumber())
+                        .write(CoverageDelta.getFile(build, reportId));
+            } catch (IOException e) {
+                listener.getLogger().println("Unable to record coverage delta: " + e.getMessage());
+            }
+        }
+        recordPhase("delta", phase);
+
+        final Set<CoverageMetric> failingMetrics = failingTarget != null
+                ? failingTarget.getFailingMetrics(result) : emptySet();
+        if (!failingMetrics.isEmpty()) {
+            logFailingMetrics(listener, failingMetrics);
+            build.setResult(Result.UNSTABLE);
         }
     }
 
-    @NonNull
-    private String withTrailingSeparator(@NonNull String path) {
-        return path.endsWith(File.separator) ? path : (path + File.separator);
+    /**
+     * Records the time since <code>start</code> as the duration of the given publishing phase.
+     *
+     * @return the current time, as the start of the next phase
+     */
+    static long recordPhase(String phase, long start) {
+        final long now = System.nanoTime();
+        CloverStatistics.get().recordPublishPhase(phase, now - start);
+        return now;
     }
 
     @NonNull
-    private Set<CoverageMetric> getFailingMetrics(ProjectCoverage result) {
-        return failingTarget != null ? failingTarget.getFailingMetrics(result) : emptySet();
+    static String withTrailingSeparator(@NonNull String path) {
+        return path.endsWith(File.separator) ? path : (path + File.separator);
     }
 
-    private void logFailingMetrics(TaskListener listener, Set<CoverageMetric> failingMetrics) {
+    private static void logFailingMetrics(TaskListener listener, Set<CoverageMetric> failingMetrics) {
         listener.getLogger().println("Code coverage enforcement failed for the following metrics:");
         for (CoverageMetric metric : failingMetrics) {
             listener.getLogger().println("    " + metric);
@@ -293,11 +546,10 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
         listener.getLogger().println("Setting Build to unstable.");
     }
 
-    private boolean copyXmlReport(FilePath coverageReport, FilePath buildTarget, TaskListener listener, String fileName)
+    private boolean copyXmlReport(FilePath cloverXmlPath, FilePath coverageReport, FilePath buildTarget, TaskListener listener)
             throws IOException, InterruptedException {
-        final FilePath cloverXmlPath = findOneDirDeep(coverageReport, fileName);
-        if (!cloverXmlPath.exists()) {
-            listener.getLogger().printf("Clover XML file '%s' does not exist in '%s' and was not copied!%n", fileName, coverageReport);
+        if (cloverXmlPath == null) {
+            listener.getLogger().printf("Clover XML file '%s' does not exist in '%s' and was not copied!%n", getCloverReportFileName(), coverageReport);
             return false;
         }
         listener.getLogger().println(String.format("Publishing Clover XML report%s...", forReport(reportId)));
@@ -307,49 +559,27 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
         return true;
     }
 
-    private boolean copyHtmlReport(FilePath coverageReport, FilePath buildTarget, TaskListener listener)
+    private boolean copyHtmlReport(Run<?, ?> run, DiscoverReportCallable.ReportLocation location,
+                                   FilePath coverageReport, FilePath buildTarget, TaskListener listener)
             throws IOException, InterruptedException {
-        final FilePath htmlIndexHtmlPath = findOneDirDeep(coverageReport, "index.html");
-        if (!htmlIndexHtmlPath.exists()) {
+        if (location.getHtmlDir() == null) {
             listener.getLogger().printf("Clover HTML report '%s' does not exist and was not copied!%n", coverageReport);
             return false;
         }
-        final FilePath htmlDirPath = htmlIndexHtmlPath.getParent();
-        if (htmlDirPath == null) {
-            listener.getLogger().println("Parent directory of " + htmlIndexHtmlPath.getRemote() + " is null, not publishing Clover HTML report.");
-            return false;
-        }
+        final FilePath htmlDirPath = new FilePath(coverageReport.getChannel(), location.getHtmlDir());
         listener.getLogger().println("Publishing Clover HTML report...");
-        htmlDirPath.copyRecursiveTo("**/*", buildTarget);
-        return true;
-    }
-
-    /**
-     * Searches the current directory and its immediate children directories for filename.
-     * The first occurrence is returned.
-     *
-     * @param startDir the dir to start searching in
-     * @param filename the filename to search for
-     * @return the path of filename
-     * @throws IOException          on error
-     * @throws InterruptedException on error
-     */
-    private FilePath findOneDirDeep(final FilePath startDir, final String filename)
-            throws IOException, InterruptedException {
-
-        FilePath dirContainingFile = startDir;
-        if (!dirContainingFile.child(filename).exists()) {
-            final List<FilePath> dirs = dirContainingFile.listDirectories();
-            if (dirs != null) {
-                for (FilePath dir : dirs) {
-                    if (dir.child(filename).exists()) {
-                        dirContainingFile = dir;
-                        break;
-                    }
-                }
-            }
+        switch (getHtmlStorage()) {
+            case ARCHIVE:
+                HtmlReportArchive.write(htmlDirPath, new File(buildTarget.getRemote()));
+                break;
+            case DEDUPLICATED:
+                final int transferred = HtmlReportBlobStore.publish(htmlDirPath, run);
+                listener.getLogger().println("Transferred " + transferred + " new Clover HTML report files");
+                break;
+            default:
+                htmlDirPath.copyRecursiveTo("**/*", buildTarget);
         }
-        return dirContainingFile.child(filename);
+        return true;
     }
 
     private void flagMissingCloverXml(TaskListener listener) {
@@ -442,6 +672,13 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
             if (id != null && !id.isEmpty()) {
                 instance.setReportId(id);
             }
+            instance.setReportSearchPattern(req.getParameter("clover.reportSearchPattern"));
+            instance.setCloverReportPattern(req.getParameter("clover.cloverReportPattern"));
+            instance.setArchiveSources(req.getParameter("clover.archiveSources") != null);
+            String storage = req.getParameter("clover.htmlStorage");
+            if (storage != null && !storage.isEmpty()) {
+                instance.setHtmlStorage(HtmlReportStorage.valueOf(storage));
+            }
             // start ugly hack
             if (instance.healthyTarget.isEmpty()) {
                 instance.healthyTarget = new CoverageTarget(70, 80, 80);
@@ -450,6 +687,10 @@ public class CloverPublisher extends Recorder implements SimpleBuildStep {
             return instance;
         }
 
+        public HtmlReportStorage[] getHtmlStorages() {
+            return HtmlReportStorage.values();
+        }
+
         @Override
         public boolean isApplicable(Class<? extends AbstractProject> jobType) {
             return true;
@@ -0,0 +1,218 @@
+package hudson.plugins.clover;
+
+import com.google.common.cache.CacheStats;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.plugins.clover.results.ProjectCoverage;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import net.sf.json.JSONObject;
+
+/**
+ * Counters and histograms of the report cache, report loading, XML parsing and publishing on the controller.
+ * Exposed through JMX ({@link CloverStatisticsMBean}) and as JSON by {@link CloverStatisticsAction}.
+ */
+public final class CloverStatistics implements CloverStatisticsMBean {
+
+    static final String OBJECT_NAME = "hudson.plugins.clover:type=CloverStatistics";
+
+    private static final CloverStatistics INSTANCE = new CloverStatistics();
+
+    /** Time spent loading a report, excluding the wait for a load permit. */
+    private final Histogram loadMillis = new Histogram();
+    /** Time spent waiting for a load permit. */
+    private final Histogram loadWaitMillis = new Histogram();
+    /** Number of nodes of each loaded report. */
+    private final Histogram nodeCounts = new Histogram();
+    private final LongAdder parsedBytes = new LongAdder();
+    private final LongAdder parseNanos = new LongAdder();
+    private final Map<String, Histogram> publishPhaseMillis = new ConcurrentHashMap<>();
+
+    private CloverStatistics() {
+    }
+
+    public static CloverStatistics get() {
+        return INSTANCE;
+    }
+
+    @Initializer(after = InitMilestone.PLUGINS_STARTED)
+    public static void registerMBean() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+        } catch (InstanceAlreadyExistsException e) {
+            // registered by an earlier instance of the plugin in this JVM
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register " + OBJECT_NAME, e);
+        }
+    }
+
+    void recordLoad(long waitNanos, long loadNanos, ProjectCoverage result) {
+        loadWaitMillis.record(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        loadMillis.record(TimeUnit.NANOSECONDS.toMillis(loadNanos));
+        if (result != null) {
+            nodeCounts.record(result.getNodeCount());
+        }
+    }
+
+    void recordParse(long bytes, long nanos) {
+        parsedBytes.add(bytes);
+        parseNanos.add(nanos);
+    }
+
+    void recordPublishPhase(String phase, long nanos) {
+        publishPhaseMillis.computeIfAbsent(phase, k -> new Histogram()).record(TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+
+    public long getCacheHitCount() {
+        return CloverBuildAction.getReportCacheStats().hitCount();
+    }
+
+    public long getCacheMissCount() {
+        return CloverBuildAction.getReportCacheStats().missCount();
+    }
+
+    public long getCacheEvictionCount() {
+        return CloverBuildAction.getReportCacheStats().evictionCount();
+    }
+
+    public long getCacheSize() {
+        return CloverBuildAction.getReportCacheSize();
+    }
+
+    public long getCacheWeight() {
+        return CloverBuildAction.getReportCacheWeight();
+    }
+
+    public long getLoadCount() {
+        return loadMillis.getCount();
+    }
+
+    public double getLoadMeanMillis() {
+        return loadMillis.getMean();
+    }
+
+    public long getLoadMaxMillis() {
+        return loadMillis.getMax();
+    }
+
+    public double getLoadWaitMeanMillis() {
+        return loadWaitMillis.getMean();
+    }
+
+    public double getMeanNodeCount() {
+        return nodeCounts.getMean();
+    }
+
+    public long getMaxNodeCount() {
+        return nodeCounts.getMax();
+    }
+
+    public long getParsedBytes() {
+        return parsedBytes.sum();
+    }
+
+    public double getParseBytesPerSecond() {
+        final long nanos = parseNanos.sum();
+        return nanos == 0 ? 0 : parsedBytes.sum() * (double) TimeUnit.SECONDS.toNanos(1) / nanos;
+    }
+
+    public long getPublishCount() {
+        final Histogram total = publishPhaseMillis.get("total");
+        return total == null ? 0 : total.getCount();
+    }
+
+    public double getPublishMeanMillis() {
+        final Histogram total = publishPhaseMillis.get("total");
+        return total == null ? 0 : total.getMean();
+    }
+
+    JSONObject toJSON() {
+        final CacheStats stats = CloverBuildAction.getReportCacheStats();
+        final JSONObject cache = new JSONObject()
+                .element("hitCount", stats.hitCount())
+                .element("missCount", stats.missCount())
+                .element("evictionCount", stats.evictionCount())
+                .element("loadExceptionCount", stats.loadExceptionCount())
+                .element("size", getCacheSize())
+                .element("weight", getCacheWeight());
+        final JSONObject publish = new JSONObject();
+        for (Map.Entry<String, Histogram> e : publishPhaseMillis.entrySet()) {
+            publish.element(e.getKey(), e.getValue().toJSON());
+        }
+        return new JSONObject()
+                .element("cache", cache)
+                .element("loadMillis", loadMillis.toJSON())
+                .element("loadWaitMillis", loadWaitMillis.toJSON())
+                .element("nodeCount", nodeCounts.toJSON())
+                .element("parse", new JSONObject()
+                        .element("bytes", getParsedBytes())
+                        .element("bytesPerSecond", getParseBytesPerSecond()))
+                .element("publishMillis", publish);
+    }
+
+    /**
+     * Lock free histogram with power of two buckets.
+     */
+    static final class Histogram {
+        private static final int BUCKETS = 48;
+
+        private final LongAdder[] buckets = new LongAdder[BUCKETS];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        Histogram() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        void record(long value) {
+            final long v = Math.max(0, value);
+            // bucket i holds the values in [2^(i-1), 2^i)
+            buckets[Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(v))].increment();
+            count.increment();
+            sum.add(v);
+            max.accumulate(v);
+        }
+
+        long getCount() {
+            return count.sum();
+        }
+
+        double getMean() {
+            final long n = count.sum();
+            return n == 0 ? 0 : (double) sum.sum() / n;
+        }
+
+        long getMax() {
+            return max.get();
+        }
+
+        JSONObject toJSON() {
+            final JSONObject histogram = new JSONObject();
+            for (int i = 0; i < BUCKETS; i++) {
+                final long n = buckets[i].sum();
+                if (n > 0) {
+                    histogram.element("<" + (1L << i), n);
+                }
+            }
+            return new JSONObject()
+                    .element("count", getCount())
+                    .element("mean", getMean())
+                    .element("max", getMax())
+                    .element("buckets", histogram);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(CloverStatistics.class.getName());
+}
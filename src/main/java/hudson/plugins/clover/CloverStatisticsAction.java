@@ -0,0 +1,34 @@
+package hudson.plugins.clover;
+
+import hudson.Extension;
+import hudson.model.RootAction;
+import java.io.IOException;
+import jenkins.model.Jenkins;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+
+/**
+ * Serves {@link CloverStatistics} as JSON at <code>/clover-statistics/</code> to users who may read the system
+ * configuration. Not shown in the side panel.
+ */
+@Extension
+public class CloverStatisticsAction implements RootAction {
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return null;
+    }
+
+    public String getUrlName() {
+        return "clover-statistics";
+    }
+
+    public void doIndex(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        Jenkins.get().checkPermission(Jenkins.SYSTEM_READ);
+        rsp.setContentType("application/json;charset=UTF-8");
+        CloverStatistics.get().toJSON().write(rsp.getWriter());
+    }
+}
@@ -0,0 +1,37 @@
+package hudson.plugins.clover;
+
+/**
+ * JMX view of {@link CloverStatistics}, registered as <code>hudson.plugins.clover:type=CloverStatistics</code>.
+ */
+public interface CloverStatisticsMBean {
+
+    long getCacheHitCount();
+
+    long getCacheMissCount();
+
+    long getCacheEvictionCount();
+
+    long getCacheSize();
+
+    long getCacheWeight();
+
+    long getLoadCount();
+
+    double getLoadMeanMillis();
+
+    long getLoadMaxMillis();
+
+    double getLoadWaitMeanMillis();
+
+    double getMeanNodeCount();
+
+    long getMaxNodeCount();
+
+    long getParsedBytes();
+
+    double getParseBytesPerSecond();
+
+    long getPublishCount();
+
+    double getPublishMeanMillis();
+}
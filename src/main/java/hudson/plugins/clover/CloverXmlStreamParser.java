@@ -0,0 +1,328 @@
+package hudson.plugins.clover;
+
+import hudson.plugins.clover.results.AbstractClassAggregatedMetrics;
+import hudson.plugins.clover.results.AbstractCloverMetrics;
+import hudson.plugins.clover.results.AbstractFileAggregatedMetrics;
+import hudson.plugins.clover.results.AbstractPackageAggregatedMetrics;
+import hudson.plugins.clover.results.ClassCoverage;
+import hudson.plugins.clover.results.FileCoverage;
+import hudson.plugins.clover.results.LineCoverageStore;
+import hudson.plugins.clover.results.PackageCoverage;
+import hudson.plugins.clover.results.ProjectCoverage;
+import java.io.IOException;
+import java.io.InputStream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Pull parser for clover.xml. Walks the document once with a {@link XMLStreamReader} and maps the attributes of
+ * <code>coverage/project</code>, its packages, files and classes and their <code>metrics</code> straight onto the
+ * results model. The <code>line</code> elements are streamed into a {@link LineCoverageStore} in the same pass when a
+ * writer is given, and skipped otherwise.
+ */
+final class CloverXmlStreamParser {
+
+    /** Do not instantiate CloverXmlStreamParser. */
+    private CloverXmlStreamParser() {
+    }
+
+    static ProjectCoverage parse(InputStream in, boolean secure) throws IOException {
+        return parse(in, secure, null, null);
+    }
+
+    /**
+     * Parses the coverage tree and, if a writer is given, streams the <code>line</code> elements of all files into a
+     * line coverage store. The file names of the store are trimmed like those of the coverage tree, see
+     * {@link CloverCoverageParser#trimPaths}; the tree itself is returned untrimmed.
+     *
+     * @param lines the writer of the line coverage, <code>null</code> to skip the lines
+     */
+    static ProjectCoverage parse(InputStream in, boolean secure, String pathPrefix, LineCoverageStore.Writer lines)
+            throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = createInputFactory(secure).createXMLStreamReader(in);
+            return readDocument(reader, secure, new Lines(pathPrefix, lines));
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Cannot parse coverage results", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // the underlying stream is closed by the caller
+                }
+            }
+        }
+    }
+
+    private static int intAttribute(XMLStreamReader reader, String name) {
+        final String value = reader.getAttributeValue(null, name);
+        return value == null ? 0 : Integer.parseInt(value);
+    }
+
+    static XMLInputFactory createInputFactory(boolean secure) {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        if (secure) {
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        }
+        return factory;
+    }
+
+    private static ProjectCoverage readDocument(XMLStreamReader reader, boolean secure, Lines lines)
+            throws XMLStreamException, IOException {
+        if (!startCoverage(reader, secure)) {
+            return null;
+        }
+
+        ProjectCoverage project = null;
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if (project == null && "project".equals(reader.getLocalName())) {
+                project = readProject(reader, lines);
+            } else {
+                skipElement(reader);
+            }
+        }
+        return project;
+    }
+
+    /**
+     * Moves to the root element, rejecting document type declarations in the same way as the secure digester does.
+     *
+     * @return whether the root element is <code>coverage</code>
+     */
+    static boolean startCoverage(XMLStreamReader reader, boolean secure) throws XMLStreamException, IOException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.DTD && secure) {
+                throw new IOException("Cannot parse coverage results: DOCTYPE is not allowed");
+            }
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                break;
+            }
+        }
+        return reader.isStartElement() && "coverage".equals(reader.getLocalName());
+    }
+
+    private static ProjectCoverage readProject(XMLStreamReader reader, Lines lines)
+            throws XMLStreamException, IOException {
+        ProjectCoverage project = new ProjectCoverage();
+        applyAttributes(reader, project);
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "metrics":
+                    applyAttributes(reader, project);
+                    skipElement(reader);
+                    break;
+                case "package":
+                    project.addPackageCoverage(readPackage(reader, lines));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return project;
+    }
+
+    private static PackageCoverage readPackage(XMLStreamReader reader, Lines lines)
+            throws XMLStreamException, IOException {
+        PackageCoverage packageCoverage = new PackageCoverage();
+        applyAttributes(reader, packageCoverage);
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "metrics":
+                    applyAttributes(reader, packageCoverage);
+                    skipElement(reader);
+                    break;
+                case "file":
+                    packageCoverage.addFileCoverage(readFile(reader, lines));
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return packageCoverage;
+    }
+
+    private static FileCoverage readFile(XMLStreamReader reader, Lines lines) throws XMLStreamException, IOException {
+        FileCoverage fileCoverage = new FileCoverage();
+        applyAttributes(reader, fileCoverage);
+        lines.startFile(fileCoverage.getName());
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "metrics":
+                    applyAttributes(reader, fileCoverage);
+                    skipElement(reader);
+                    break;
+                case "class":
+                    fileCoverage.addClassCoverage(readClass(reader));
+                    break;
+                case "line":
+                    // not part of the results model
+                    lines.add(reader);
+                    skipElement(reader);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        lines.endFile();
+        return fileCoverage;
+    }
+
+    private static ClassCoverage readClass(XMLStreamReader reader) throws XMLStreamException {
+        ClassCoverage classCoverage = new ClassCoverage();
+        applyAttributes(reader, classCoverage);
+        while (nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if ("metrics".equals(reader.getLocalName())) {
+                applyAttributes(reader, classCoverage);
+            }
+            skipElement(reader);
+        }
+        return classCoverage;
+    }
+
+    /**
+     * Copies the attributes of the current element onto the matching properties of the given node, just like the
+     * digester's <code>SetPropertiesRule</code> does. Unknown attributes are ignored.
+     */
+    static void applyAttributes(XMLStreamReader reader, AbstractCloverMetrics node) {
+        for (int i = 0, count = reader.getAttributeCount(); i < count; i++) {
+            final String value = reader.getAttributeValue(i);
+            switch (reader.getAttributeLocalName(i)) {
+                case "name":
+                    node.setName(value);
+                    break;
+                case "methods":
+                    node.setMethods(Integer.parseInt(value));
+                    break;
+                case "coveredmethods":
+                    node.setCoveredmethods(Integer.parseInt(value));
+                    break;
+                case "conditionals":
+                    node.setConditionals(Integer.parseInt(value));
+                    break;
+                case "coveredconditionals":
+                    node.setCoveredconditionals(Integer.parseInt(value));
+                    break;
+                case "statements":
+                    node.setStatements(Integer.parseInt(value));
+                    break;
+                case "coveredstatements":
+                    node.setCoveredstatements(Integer.parseInt(value));
+                    break;
+                case "elements":
+                    node.setElements(Integer.parseInt(value));
+                    break;
+                case "coveredelements":
+                    node.setCoveredelements(Integer.parseInt(value));
+                    break;
+                case "complexity":
+                    node.setComplexity(Integer.parseInt(value));
+                    break;
+                case "classes":
+                    if (node instanceof AbstractClassAggregatedMetrics) {
+                        ((AbstractClassAggregatedMetrics) node).setClasses(Integer.parseInt(value));
+                    }
+                    break;
+                case "loc":
+                    if (node instanceof AbstractClassAggregatedMetrics) {
+                        ((AbstractClassAggregatedMetrics) node).setLoc(Integer.parseInt(value));
+                    }
+                    break;
+                case "ncloc":
+                    if (node instanceof AbstractClassAggregatedMetrics) {
+                        ((AbstractClassAggregatedMetrics) node).setNcloc(Integer.parseInt(value));
+                    }
+                    break;
+                case "files":
+                    if (node instanceof AbstractFileAggregatedMetrics) {
+                        ((AbstractFileAggregatedMetrics) node).setFiles(Integer.parseInt(value));
+                    }
+                    break;
+                case "packages":
+                    if (node instanceof AbstractPackageAggregatedMetrics) {
+                        ((AbstractPackageAggregatedMetrics) node).setPackages(Integer.parseInt(value));
+                    }
+                    break;
+                default:
+                    // not mapped onto the results model
+            }
+        }
+    }
+
+    /**
+     * Advances to the next start or end element, skipping whitespace, comments and processing instructions.
+     *
+     * @return {@link XMLStreamConstants#START_ELEMENT} or {@link XMLStreamConstants#END_ELEMENT}
+     */
+    static int nextElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                return event;
+            }
+        }
+        return XMLStreamConstants.END_DOCUMENT;
+    }
+
+    /**
+     * Skips the current element together with all its descendants, leaving the reader on its end element.
+     */
+    static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Where the <code>line</code> elements go: a line coverage store, or nowhere.
+     */
+    private static final class Lines {
+        private final String pathPrefix;
+        private final LineCoverageStore.Writer writer;
+
+        Lines(String pathPrefix, LineCoverageStore.Writer writer) {
+            this.pathPrefix = pathPrefix;
+            this.writer = writer;
+        }
+
+        void startFile(String name) throws IOException {
+            if (writer != null) {
+                // the lines of a file without a name are not stored
+                writer.startFile(name == null ? null : CloverCoverageParser.trimPath(name, pathPrefix));
+            }
+        }
+
+        void add(XMLStreamReader reader) {
+            if (writer == null) {
+                return;
+            }
+            final String type = reader.getAttributeValue(null, "type");
+            if ("method".equals(type)) {
+                writer.addMethod(intAttribute(reader, "num"), intAttribute(reader, "count"),
+                        reader.getAttributeValue(null, "signature"), intAttribute(reader, "complexity"));
+            } else {
+                final boolean cond = "cond".equals(type);
+                writer.addLine(intAttribute(reader, "num"), type,
+                        intAttribute(reader, cond ? "truecount" : "count"),
+                        cond ? intAttribute(reader, "falsecount") : 0);
+            }
+        }
+
+        void endFile() throws IOException {
+            if (writer != null) {
+                writer.endFile();
+            }
+        }
+    }
+}
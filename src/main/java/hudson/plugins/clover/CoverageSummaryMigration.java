@@ -0,0 +1,85 @@
+package hudson.plugins.clover;
+
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.plugins.clover.graphs.CoverageTrendStore;
+import hudson.plugins.clover.results.ProjectCoverage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jenkins.util.Timer;
+
+/**
+ * Upgrades builds recorded by older versions, which do not store their coverage summary. Loading the report of such
+ * a build only fills in its summary in memory; the builds are then saved in batches on a background thread, so
+ * reading a report never writes <code>build.xml</code>. When the trend store of a job is created, the reports of
+ * these builds are loaded in the background as well, to add them to the trend.
+ */
+final class CoverageSummaryMigration {
+
+    /** Seconds between the first build being queued and the batch being saved. */
+    static final long DELAY_SECONDS = 30;
+
+    private static final Logger LOGGER = Logger.getLogger(CoverageSummaryMigration.class.getName());
+
+    private static final Set<Run<?, ?>> pending = ConcurrentHashMap.newKeySet();
+    private static final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /** Do not instantiate CoverageSummaryMigration. */
+    private CoverageSummaryMigration() {
+    }
+
+    /**
+     * Queues the given build to be saved with the next batch.
+     */
+    static void schedule(Run<?, ?> build) {
+        if (pending.add(build) && scheduled.compareAndSet(false, true)) {
+            Timer.get().schedule(CoverageSummaryMigration::savePending, DELAY_SECONDS, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Loads the reports of the given builds on a background thread and adds them to the trend store of the job.
+     */
+    static void backfillTrend(Job<?, ?> job, String reportId, List<CloverBuildAction> actions) {
+        Timer.get().submit(() -> {
+            final List<CoverageTrendStore.Entry> entries = new ArrayList<>();
+            for (CloverBuildAction action : actions) {
+                final ProjectCoverage result = action.getResult();
+                if (result != null && result.getOwner() != null) {
+                    entries.add(CoverageTrendStore.Entry.of(result.getOwner(), result));
+                }
+            }
+            try {
+                // the store orders the records by build number when it is read
+                CoverageTrendStore.append(job, reportId, entries);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to add older builds to the coverage trend of " + job, e);
+            }
+        });
+    }
+
+    static void savePending() {
+        scheduled.set(false);
+        for (Iterator<Run<?, ?>> it = pending.iterator(); it.hasNext(); ) {
+            final Run<?, ?> build = it.next();
+            it.remove();
+            if (build.isBuilding()) {
+                // saved by the build itself when it completes
+                continue;
+            }
+            try {
+                build.save();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to save the coverage summary of " + build, e);
+            }
+        }
+    }
+}
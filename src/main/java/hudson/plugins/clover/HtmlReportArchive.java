@@ -0,0 +1,202 @@
+package hudson.plugins.clover;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import hudson.FilePath;
+import hudson.model.DirectoryBrowserSupport;
+import hudson.model.Run;
+import hudson.util.io.ArchiverFactory;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import org.kohsuke.stapler.HttpResponse;
+import org.kohsuke.stapler.StaplerRequest2;
+import org.kohsuke.stapler.StaplerResponse2;
+
+/**
+ * Clover HTML report stored as a single zip in the build directory, see {@link HtmlReportStorage#ARCHIVE}.
+ * Entries are served straight from the archive through the central directory index of the zip, which is kept open
+ * for recently viewed reports. An archive is only closed when it has dropped out of the cache and no request is
+ * reading from it any more.
+ */
+final class HtmlReportArchive {
+
+    static final String FILE_NAME = "clover-html.zip";
+
+    private static final Logger LOGGER = Logger.getLogger(HtmlReportArchive.class.getName());
+
+    /**
+     * Opened archives by path and modification time. An archive dropping out of the cache is closed once the last
+     * request reading from it is done.
+     */
+    static final Cache<String, OpenArchive> openArchives = CacheBuilder.newBuilder()
+            .maximumSize(16)
+            .expireAfterAccess(10, TimeUnit.MINUTES)
+            .removalListener((RemovalListener<String, OpenArchive>) n -> n.getValue().release())
+            .build();
+
+    /** Do not instantiate HtmlReportArchive. */
+    private HtmlReportArchive() {
+    }
+
+    static File getFile(Run<?, ?> build) {
+        return new File(build.getRootDir(), FILE_NAME);
+    }
+
+    static boolean exists(Run<?, ?> build) {
+        return getFile(build).isFile();
+    }
+
+    /**
+     * Packs the given report directory where it lives and streams the zip into the build directory.
+     */
+    static void write(FilePath htmlDir, File buildRootDir) throws IOException, InterruptedException {
+        final File file = new File(buildRootDir, FILE_NAME);
+        final File tmp = new File(buildRootDir, FILE_NAME + ".tmp");
+        try (OutputStream os = Files.newOutputStream(tmp.toPath())) {
+            htmlDir.archive(ArchiverFactory.ZIP, os, "**/*");
+        }
+        try {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Creates a response serving the entry at the rest of the request path from the archive of the given build.
+     */
+    static HttpResponse serve(final Run<?, ?> build) {
+        return (req, rsp, node) -> serve(getFile(build), req, rsp);
+    }
+
+    private static void serve(File file, StaplerRequest2 req, StaplerResponse2 rsp)
+            throws IOException, ServletException {
+        final String path = getRequestedPath(req, rsp);
+        if (path == null) {
+            return;
+        }
+        try (OpenArchive archive = open(file)) {
+            final ZipEntry entry = archive == null ? null : archive.zip.getEntry(path);
+            if (entry == null || entry.isDirectory()) {
+                rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            setContentSecurityPolicy(rsp);
+            try (InputStream in = archive.zip.getInputStream(entry)) {
+                rsp.serveFile(req, in, entry.getTime(), entry.getSize(), entry.getName());
+            }
+        }
+    }
+
+    /**
+     * Gets the path of the report file requested by the rest of the URL, mapping directories to their index.html.
+     *
+     * @return the relative path, <code>null</code> if the client has been redirected to the URL with a trailing slash
+     */
+    static String getRequestedPath(StaplerRequest2 req, StaplerResponse2 rsp) throws IOException {
+        String path = req.getRestOfPath();
+        if (path.isEmpty() && !req.getRequestURI().endsWith("/")) {
+            rsp.sendRedirect2(req.getRequestURI() + "/");
+            return null;
+        }
+        if (path.startsWith("/")) {
+            path = path.substring(1);
+        }
+        if (path.isEmpty() || path.endsWith("/")) {
+            path += "index.html";
+        }
+        return path;
+    }
+
+    /**
+     * Applies the same restrictions as for reports served from the file system by {@link DirectoryBrowserSupport}.
+     */
+    static void setContentSecurityPolicy(StaplerResponse2 rsp) {
+        final String csp = System.getProperty(DirectoryBrowserSupport.class.getName() + ".CSP",
+                DirectoryBrowserSupport.DEFAULT_CSP_VALUE);
+        if (!csp.trim().isEmpty()) {
+            for (String header : new String[] {"Content-Security-Policy", "X-WebKit-CSP", "X-Content-Security-Policy"}) {
+                rsp.setHeader(header, csp);
+            }
+        }
+    }
+
+    /**
+     * Opens an archive for one request, reusing the cached {@link ZipFile}.
+     *
+     * @return the archive, to be closed when the request is done; <code>null</code> if there is no archive
+     */
+    static OpenArchive open(final File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        final String key = file.getPath() + '@' + file.lastModified();
+        while (true) {
+            final OpenArchive archive;
+            try {
+                archive = openArchives.get(key, () -> new OpenArchive(key, new ZipFile(file)));
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to open " + file, e.getCause());
+            }
+            if (archive.acquire()) {
+                return archive;
+            }
+            // evicted and closed since it was looked up, open it again
+        }
+    }
+
+    /**
+     * A cached {@link ZipFile} with a count of its users: the cache and each request serving from it. The zip is
+     * closed when the count drops to zero.
+     */
+    static final class OpenArchive implements AutoCloseable {
+        private final String key;
+        final ZipFile zip;
+        private int references = 1;
+
+        OpenArchive(String key, ZipFile zip) {
+            this.key = key;
+            this.zip = zip;
+        }
+
+        synchronized boolean acquire() {
+            if (references == 0) {
+                return false;
+            }
+            references++;
+            return true;
+        }
+
+        void release() {
+            synchronized (this) {
+                if (--references > 0) {
+                    return;
+                }
+            }
+            try {
+                zip.close();
+            } catch (IOException e) {
+                LOGGER.log(Level.FINE, "Failed to close " + key, e);
+            }
+        }
+
+        @Override
+        public void close() {
+            release();
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package hudson.plugins.clover;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.clover.slave.HashFilesCallable;
+import hudson.plugins.clover.slave.ZipFilesCallable;
+import hudson.remoting.RemoteOutputStream;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.kohsuke.stapler.HttpResponse;
+
+/**
+ * Clover HTML report stored as content addressed blobs shared by all builds of a job, see
+ * {@link HtmlReportStorage#DEDUPLICATED}.
+ *
+ * <p>The blobs live in <code>clover-html-blobs/xx/&lt;sha256&gt;</code> in the job directory. Each build has a
+ * manifest mapping the report paths to blob hashes, one <code>&lt;sha256&gt; &lt;path&gt;</code> line per file.
+ * Publishing and removing blobs no longer referenced by any build are serialized per job.</p>
+ *
+ * <p>Paths and hashes reported by the agent are not trusted: paths which could leave the report and hashes which are
+ * not a SHA-256 are dropped, and the content of every transferred file is hashed again on the controller.</p>
+ */
+public final class HtmlReportBlobStore {
+
+    static final String MANIFEST_FILE_NAME = "clover-html.manifest";
+    static final String BLOB_DIR_NAME = "clover-html-blobs";
+
+    private static final Logger LOGGER = Logger.getLogger(HtmlReportBlobStore.class.getName());
+
+    private static final Pattern HASH = Pattern.compile("[0-9a-f]{64}");
+
+    private static final Interner<String> locks = Interners.newWeakInterner();
+
+    /** Parsed manifests by path and modification time. */
+    private static final Cache<String, Map<String, String>> manifests = CacheBuilder.newBuilder()
+            .maximumSize(32)
+            .build();
+
+    /** Do not instantiate HtmlReportBlobStore. */
+    private HtmlReportBlobStore() {
+    }
+
+    static File getManifestFile(File buildRootDir) {
+        return new File(buildRootDir, MANIFEST_FILE_NAME);
+    }
+
+    static boolean exists(Run<?, ?> build) {
+        return getManifestFile(build.getRootDir()).isFile();
+    }
+
+    static File getBlobDir(Job<?, ?> job) {
+        return new File(job.getRootDir(), BLOB_DIR_NAME);
+    }
+
+    private static File getBlob(File blobDir, String hash) {
+        if (!isValidHash(hash)) {
+            throw new IllegalArgumentException("Not a SHA-256: " + hash);
+        }
+        return new File(new File(blobDir, hash.substring(0, 2)), hash);
+    }
+
+    static boolean isValidHash(String hash) {
+        return hash != null && HASH.matcher(hash).matches();
+    }
+
+    /**
+     * Whether the given report path can be stored in a manifest: relative, without <code>..</code> and on one line.
+     */
+    static boolean isValidPath(String path) {
+        return path != null && !path.isEmpty() && !path.startsWith("/") && !path.contains("..")
+                && path.indexOf('\n') < 0 && path.indexOf('\r') < 0;
+    }
+
+    private static Object lockFor(File blobDir) {
+        return locks.intern(blobDir.getAbsolutePath());
+    }
+
+    /**
+     * Stores the report in the given directory for the given build. The files are hashed where they live and only
+     * the files whose content is not in the store yet are transferred.
+     *
+     * @return the number of files transferred
+     */
+    static int publish(FilePath htmlDir, Run<?, ?> build) throws IOException, InterruptedException {
+        final TreeMap<String, String> hashes = new TreeMap<>();
+        for (Map.Entry<String, String> e : htmlDir.act(new HashFilesCallable()).entrySet()) {
+            if (isValidPath(e.getKey())) {
+                // an invalid hash is replaced by the one computed when the file is transferred
+                hashes.put(e.getKey(), isValidHash(e.getValue()) ? e.getValue() : null);
+            } else {
+                LOGGER.log(Level.WARNING, "Ignoring the Clover HTML report file {0} of {1}",
+                        new Object[] {e.getKey(), build});
+            }
+        }
+        final File blobDir = getBlobDir(build.getParent());
+        synchronized (lockFor(blobDir)) {
+            // one path per missing content is enough
+            final Set<String> missing = new LinkedHashSet<>();
+            final Set<String> missingHashes = new HashSet<>();
+            for (Map.Entry<String, String> e : hashes.entrySet()) {
+                final String hash = e.getValue();
+                if (hash == null || (!getBlob(blobDir, hash).isFile() && missingHashes.add(hash))) {
+                    missing.add(e.getKey());
+                }
+            }
+            if (!missing.isEmpty()) {
+                transfer(htmlDir, missing, blobDir, hashes);
+            }
+            hashes.values().removeIf(hash -> hash == null);
+            writeManifest(getManifestFile(build.getRootDir()), hashes);
+            return missing.size();
+        }
+    }
+
+    /**
+     * Transfers the given files as one zip stream and adds them to the store. The hash is computed again on the
+     * controller, so that a file changed in between is stored (and referenced) under its actual content.
+     */
+    private static void transfer(FilePath htmlDir, Set<String> paths, File blobDir, Map<String, String> hashes)
+            throws IOException, InterruptedException {
+        Files.createDirectories(blobDir.toPath());
+        final File incoming = File.createTempFile("incoming", ".zip", blobDir);
+        try {
+            try (OutputStream os = Files.newOutputStream(incoming.toPath())) {
+                htmlDir.act(new ZipFilesCallable(paths, new RemoteOutputStream(os)));
+            }
+            final byte[] buffer = new byte[64 * 1024];
+            try (ZipInputStream zip = new ZipInputStream(Files.newInputStream(incoming.toPath()))) {
+                ZipEntry entry;
+                while ((entry = zip.getNextEntry()) != null) {
+                    if (!paths.contains(entry.getName())) {
+                        continue;
+                    }
+                    final File tmp = File.createTempFile("blob", ".tmp", blobDir);
+                    final MessageDigest digest = HashFilesCallable.newDigest();
+                    try (OutputStream out = new DigestOutputStream(Files.newOutputStream(tmp.toPath()), digest)) {
+                        int n;
+                        while ((n = zip.read(buffer)) > 0) {
+                            out.write(buffer, 0, n);
+                        }
+                    }
+                    final String hash = HashFilesCallable.toHex(digest.digest());
+                    final File blob = getBlob(blobDir, hash);
+                    if (blob.isFile()) {
+                        Files.delete(tmp.toPath());
+                    } else {
+                        Files.createDirectories(blob.getParentFile().toPath());
+                        move(tmp, blob);
+                    }
+                    hashes.put(entry.getName(), hash);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(incoming.toPath());
+        }
+    }
+
+    private static void writeManifest(File file, Map<String, String> hashes) throws IOException {
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try (BufferedWriter w = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, String> e : hashes.entrySet()) {
+                w.write(e.getValue());
+                w.write(' ');
+                w.write(e.getKey());
+                w.newLine();
+            }
+        }
+        move(tmp, file);
+    }
+
+    static Map<String, String> readManifest(File file) throws IOException {
+        final Map<String, String> hashes = new HashMap<>();
+        try (BufferedReader r = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                final int space = line.indexOf(' ');
+                if (space > 0) {
+                    final String hash = line.substring(0, space);
+                    final String path = line.substring(space + 1);
+                    if (isValidHash(hash) && isValidPath(path)) {
+                        hashes.put(path, hash);
+                    }
+                }
+            }
+        }
+        return hashes;
+    }
+
+    private static void move(File from, File to) throws IOException {
+        try {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Creates a response serving the file at the rest of the request path from the store of the given build.
+     */
+    static HttpResponse serve(final Run<?, ?> build) {
+        return (req, rsp, node) -> {
+            final String path = HtmlReportArchive.getRequestedPath(req, rsp);
+            if (path == null) {
+                return;
+            }
+            final File manifest = getManifestFile(build.getRootDir());
+            final String hash;
+            try {
+                hash = manifests.get(manifest.getPath() + '@' + manifest.lastModified(), () -> readManifest(manifest))
+                        .get(path);
+            } catch (ExecutionException e) {
+                throw new IOException("Failed to read " + manifest, e.getCause());
+            }
+            final File blobDir = getBlobDir(build.getParent());
+            final File blob = hash == null ? null : getBlob(blobDir, hash);
+            if (blob == null || !blob.isFile()
+                    || !blob.getCanonicalPath().startsWith(blobDir.getCanonicalPath() + File.separator)) {
+                rsp.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            HtmlReportArchive.setContentSecurityPolicy(rsp);
+            try (InputStream in = Files.newInputStream(blob.toPath())) {
+                rsp.serveFile(req, in, blob.lastModified(), blob.length(), path);
+            }
+        };
+    }
+
+    /**
+     * Removes the blobs no longer referenced by the manifest of any build of the job.
+     *
+     * @param deleted the root directory of a build about to be deleted, whose manifest is ignored
+     */
+    static void collectGarbage(Job<?, ?> job, File deleted) throws IOException {
+        final File blobDir = getBlobDir(job);
+        if (!blobDir.isDirectory()) {
+            return;
+        }
+        synchronized (lockFor(blobDir)) {
+            final Set<String> referenced = new HashSet<>();
+            final File[] builds = job.getBuildDir().listFiles();
+            for (File build : builds == null ? new File[0] : builds) {
+                final File manifest = getManifestFile(build);
+                if (!build.equals(deleted) && manifest.isFile()) {
+                    referenced.addAll(readManifest(manifest).values());
+                }
+            }
+            final File[] buckets = blobDir.listFiles(File::isDirectory);
+            for (File bucket : buckets == null ? new File[0] : buckets) {
+                final File[] blobs = bucket.listFiles();
+                for (File blob : blobs == null ? new File[0] : blobs) {
+                    if (!referenced.contains(blob.getName())) {
+                        Files.deleteIfExists(blob.toPath());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops the blobs only referenced by a build when the build is deleted.
+     */
+    @Extension
+    public static final class CleanupListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> r) {
+            if (!exists(r)) {
+                return;
+            }
+            try {
+                collectGarbage(r.getParent(), r.getRootDir());
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to clean up the Clover HTML reports of " + r.getParent(), e);
+            }
+        }
+    }
+}
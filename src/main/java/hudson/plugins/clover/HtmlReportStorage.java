@@ -0,0 +1,13 @@
+package hudson.plugins.clover;
+
+/**
+ * How {@link CloverPublisher} stores the Clover HTML report in the build directory.
+ */
+public enum HtmlReportStorage {
+    /** Every file of the report is copied into the build directory. */
+    FILES,
+    /** The report is packed into a single zip on the agent and served from it without extracting. */
+    ARCHIVE,
+    /** The files of the report are stored once per job by content, only new content is transferred. */
+    DEDUPLICATED
+}
@@ -0,0 +1,480 @@
+package hudson.plugins.clover;
+
+import hudson.plugins.clover.results.ClassCoverage;
+import hudson.plugins.clover.results.FileCoverage;
+import hudson.plugins.clover.results.PackageCoverage;
+import hudson.plugins.clover.results.ProjectCoverage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import static hudson.plugins.clover.results.AbstractClassAggregatedMetrics.addClassMetrics;
+import static hudson.plugins.clover.results.AbstractClassAggregatedMetrics.maxClassMetrics;
+import static hudson.plugins.clover.results.AbstractCloverMetrics.addMetrics;
+import static hudson.plugins.clover.results.AbstractCloverMetrics.maxMetrics;
+
+/**
+ * Union of the line coverage of several clover.xml reports of the same code, e.g. of the shards of a test run split
+ * across agents: a statement or method is covered if any report covers it, a branch of a conditional if any report
+ * takes it. Each report is streamed once and folded into the union, so only the union itself is held in memory, never
+ * the coverage trees of the reports.
+ * <p>
+ * File, package and project metrics are recomputed from the merged lines. Clover does not tell which lines belong to
+ * which class, so a class gets the highest coverage any single report has for it. Files without <code>line</code>
+ * elements fall back to the same.
+ * <p>
+ * Files are matched by path. As the shards usually ran in different workspaces, the paths of each report after the
+ * first are rebased onto those of the union: the first file of a report whose name is unique in its package in the
+ * union is taken to be the same file, and the directories in which the two paths differ are swapped for all paths of
+ * the report. Two files with the same name in one package, e.g. in different modules, stay apart.
+ * <p>
+ * The lines of a file are held as two packed columns, the line keys and their covered bits, so the union stays small
+ * however many lines the reports have. The union is serializable, so it can be started on the agent holding some of
+ * the reports and completed on the controller with the others.
+ */
+public final class LineCoverageUnion implements Serializable {
+
+    private static final int STMT = 0;
+    private static final int METHOD = 1;
+    private static final int COND = 2;
+
+    private static final byte COVERED = 1;
+    private static final byte TRUE_COVERED = 1;
+    private static final byte FALSE_COVERED = 2;
+
+    private final Map<String, PackageUnion> packages = new LinkedHashMap<>();
+    private String projectName;
+    private int reports;
+
+    /**
+     * Folds one clover.xml into the union.
+     */
+    public void add(InputStream in) throws IOException {
+        final boolean secure = !Boolean.getBoolean(CloverCoverageParser.class.getName() + ".UNSAFE");
+        XMLStreamReader reader = null;
+        try {
+            reader = CloverXmlStreamParser.createInputFactory(secure).createXMLStreamReader(in);
+            if (!CloverXmlStreamParser.startCoverage(reader, secure)) {
+                throw new IOException("Cannot parse coverage results: not a clover.xml report");
+            }
+            final Report report = new Report(reports == 0);
+            while (CloverXmlStreamParser.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                if ("project".equals(reader.getLocalName())) {
+                    readProject(reader, report);
+                    break;
+                }
+                CloverXmlStreamParser.skipElement(reader);
+            }
+            reports++;
+        } catch (XMLStreamException | NumberFormatException e) {
+            throw new IOException("Cannot parse coverage results", e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                    // the underlying stream is closed by the caller
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of reports folded into the union.
+     */
+    public int getReportCount() {
+        return reports;
+    }
+
+    /**
+     * Builds the coverage tree of the union.
+     *
+     * @param pathPrefix the prefix trimmed from the file names, see {@link CloverCoverageParser#trimPaths}
+     */
+    public ProjectCoverage toProjectCoverage(String pathPrefix) {
+        final ProjectCoverage project = new ProjectCoverage();
+        project.setName(projectName);
+        int files = 0;
+        for (PackageUnion p : packages.values()) {
+            final PackageCoverage packageCoverage = p.toPackageCoverage();
+            project.addPackageCoverage(packageCoverage);
+            addClassMetrics(project, packageCoverage);
+            files += packageCoverage.getFiles();
+        }
+        project.setPackages(packages.size());
+        project.setFiles(files);
+        return CloverCoverageParser.trimPaths(project, pathPrefix);
+    }
+
+    private void readProject(XMLStreamReader reader, Report report) throws XMLStreamException {
+        if (projectName == null) {
+            projectName = reader.getAttributeValue(null, "name");
+        }
+        while (CloverXmlStreamParser.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            if ("package".equals(reader.getLocalName())) {
+                final String name = reader.getAttributeValue(null, "name");
+                packages.computeIfAbsent(name, PackageUnion::new).read(reader, report);
+            } else {
+                CloverXmlStreamParser.skipElement(reader);
+            }
+        }
+    }
+
+    private static String baseName(String path) {
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * How the paths of the report being folded in map onto the paths of the union.
+     */
+    private static final class Report {
+        /** Whether the mapping is known; the paths of the first report are taken as they are. */
+        private boolean rebased;
+        private String from = "";
+        private String to = "";
+        /** The files this report added to the union before the mapping was known, with their packages. */
+        private final Map<FileUnion, PackageUnion> added = new LinkedHashMap<>();
+
+        Report(boolean first) {
+            this.rebased = first;
+        }
+
+        String rebase(String path) {
+            return path.startsWith(from) ? to + path.substring(from.length()) : path;
+        }
+
+        /**
+         * Gets the length of the longest common tail of two paths which starts with a directory or file name.
+         */
+        static int commonTail(String path, String known) {
+            int i = path.length();
+            int j = known.length();
+            while (i > 0 && j > 0 && path.charAt(i - 1) == known.charAt(j - 1)) {
+                i--;
+                j--;
+            }
+            while (i < path.length() && !(startsName(path, i) && startsName(known, j))) {
+                i++;
+                j++;
+            }
+            return path.length() - i;
+        }
+
+        /**
+         * Learns the mapping from a path of the report and the path of the same file in the union: the directories
+         * before their {@link #commonTail common tail}.
+         */
+        void learn(String path, String known) {
+            final int tail = commonTail(path, known);
+            from = path.substring(0, path.length() - tail);
+            to = known.substring(0, known.length() - tail);
+            rebased = true;
+            for (Map.Entry<FileUnion, PackageUnion> e : added.entrySet()) {
+                e.getValue().rename(e.getKey(), rebase(e.getKey().path));
+            }
+            added.clear();
+        }
+
+        private static boolean startsName(String path, int i) {
+            return i == 0 || path.charAt(i - 1) == '/';
+        }
+    }
+
+    private static final class PackageUnion implements Serializable {
+        private final String name;
+        private final Map<String, FileUnion> files = new LinkedHashMap<>();
+        /** The files by name, rebuilt when needed. */
+        private transient Map<String, List<FileUnion>> byName;
+
+        PackageUnion(String name) {
+            this.name = name;
+        }
+
+        void read(XMLStreamReader reader, Report report) throws XMLStreamException {
+            while (CloverXmlStreamParser.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                if ("file".equals(reader.getLocalName())) {
+                    file(reader.getAttributeValue(null, "name").replace('\\', '/'), report).read(reader);
+                } else {
+                    CloverXmlStreamParser.skipElement(reader);
+                }
+            }
+        }
+
+        private FileUnion file(String path, Report report) {
+            if (!report.rebased) {
+                final FileUnion known = findSame(path, report);
+                if (known != null) {
+                    report.learn(path, known.path);
+                }
+            }
+            if (report.rebased) {
+                return files.computeIfAbsent(report.rebase(path), this::newFile);
+            }
+            FileUnion file = files.get(path);
+            if (file == null) {
+                file = newFile(path);
+                files.put(path, file);
+                report.added.put(file, this);
+            }
+            return file;
+        }
+
+        /**
+         * Finds the file of the union which the given path of a report not yet rebased most likely names: of the
+         * files with the same name added by earlier reports, the one sharing the longest tail with the path, if
+         * there is exactly one such file.
+         */
+        private FileUnion findSame(String path, Report report) {
+            final List<FileUnion> candidates = getByName().get(baseName(path));
+            FileUnion best = null;
+            int bestTail = -1;
+            for (FileUnion candidate : candidates == null ? Collections.<FileUnion>emptyList() : candidates) {
+                if (report.added.containsKey(candidate)) {
+                    continue;
+                }
+                final int tail = Report.commonTail(path, candidate.path);
+                if (tail > bestTail) {
+                    best = candidate;
+                    bestTail = tail;
+                } else if (tail == bestTail) {
+                    best = null;
+                }
+            }
+            return best;
+        }
+
+        private FileUnion newFile(String path) {
+            final FileUnion file = new FileUnion(path);
+            if (byName != null) {
+                byName.computeIfAbsent(baseName(path), n -> new ArrayList<>(1)).add(file);
+            }
+            return file;
+        }
+
+        private Map<String, List<FileUnion>> getByName() {
+            if (byName == null) {
+                byName = new HashMap<>();
+                for (FileUnion f : files.values()) {
+                    byName.computeIfAbsent(baseName(f.path), n -> new ArrayList<>(1)).add(f);
+                }
+            }
+            return byName;
+        }
+
+        /**
+         * Moves a file to another path, merging it into the file already there, if any.
+         */
+        void rename(FileUnion file, String path) {
+            if (path.equals(file.path)) {
+                return;
+            }
+            files.remove(file.path);
+            files.computeIfAbsent(path, FileUnion::new).merge(file);
+            byName = null;
+        }
+
+        PackageCoverage toPackageCoverage() {
+            final PackageCoverage packageCoverage = new PackageCoverage();
+            packageCoverage.setName(name);
+            for (FileUnion f : files.values()) {
+                final FileCoverage fileCoverage = f.toFileCoverage();
+                packageCoverage.addFileCoverage(fileCoverage);
+                addClassMetrics(packageCoverage, fileCoverage);
+            }
+            packageCoverage.setFiles(files.size());
+            return packageCoverage;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final class FileUnion implements Serializable {
+        private final String path;
+        /** The highest metrics of any single report, used for the class counts and for files without lines. */
+        private final FileCoverage best = new FileCoverage();
+        private final Map<String, ClassCoverage> classes = new LinkedHashMap<>();
+        /** The lines as <code>num * 4 + type</code>, sorted and distinct after {@link #compact()}. */
+        private int[] keys = new int[0];
+        /** The covered bits of each line in {@link #keys}. */
+        private byte[] bits = new byte[0];
+        private int size;
+
+        FileUnion(String path) {
+            this.path = path;
+        }
+
+        private void addLine(int key, byte covered) {
+            if (size == keys.length) {
+                final int capacity = Math.max(16, size * 2);
+                keys = Arrays.copyOf(keys, capacity);
+                bits = Arrays.copyOf(bits, capacity);
+            }
+            keys[size] = key;
+            bits[size] = covered;
+            size++;
+        }
+
+        /**
+         * Sorts the lines, folds the records of the same line into one and trims the columns to their size.
+         */
+        private void compact() {
+            final long[] packed = new long[size];
+            for (int i = 0; i < size; i++) {
+                packed[i] = ((long) keys[i] << 8) | bits[i];
+            }
+            Arrays.sort(packed);
+            int n = 0;
+            for (int i = 0; i < packed.length; i++) {
+                final int key = (int) (packed[i] >>> 8);
+                final byte covered = (byte) packed[i];
+                if (n > 0 && keys[n - 1] == key) {
+                    bits[n - 1] |= covered;
+                } else {
+                    keys[n] = key;
+                    bits[n] = covered;
+                    n++;
+                }
+            }
+            size = n;
+            keys = Arrays.copyOf(keys, n);
+            bits = Arrays.copyOf(bits, n);
+        }
+
+        /**
+         * Folds another file into this one.
+         */
+        void merge(FileUnion other) {
+            maxClassMetrics(best, other.best);
+            for (ClassCoverage c : other.classes.values()) {
+                maxMetrics(getClass(c.getName()), c);
+            }
+            for (int i = 0; i < other.size; i++) {
+                addLine(other.keys[i], other.bits[i]);
+            }
+            compact();
+        }
+
+        private ClassCoverage getClass(String name) {
+            return classes.computeIfAbsent(name, n -> {
+                final ClassCoverage c = new ClassCoverage();
+                c.setName(n);
+                return c;
+            });
+        }
+
+        void read(XMLStreamReader reader) throws XMLStreamException {
+            while (CloverXmlStreamParser.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                switch (reader.getLocalName()) {
+                    case "metrics":
+                        final FileCoverage metrics = new FileCoverage();
+                        CloverXmlStreamParser.applyAttributes(reader, metrics);
+                        maxClassMetrics(best, metrics);
+                        break;
+                    case "class":
+                        readClass(reader);
+                        continue;
+                    case "line":
+                        readLine(reader);
+                        break;
+                    default:
+                        break;
+                }
+                CloverXmlStreamParser.skipElement(reader);
+            }
+            compact();
+        }
+
+        private void readClass(XMLStreamReader reader) throws XMLStreamException {
+            final ClassCoverage classCoverage = getClass(reader.getAttributeValue(null, "name"));
+            while (CloverXmlStreamParser.nextElement(reader) == XMLStreamConstants.START_ELEMENT) {
+                if ("metrics".equals(reader.getLocalName())) {
+                    final ClassCoverage metrics = new ClassCoverage();
+                    CloverXmlStreamParser.applyAttributes(reader, metrics);
+                    maxMetrics(classCoverage, metrics);
+                }
+                CloverXmlStreamParser.skipElement(reader);
+            }
+        }
+
+        private void readLine(XMLStreamReader reader) {
+            final int num = Integer.parseInt(reader.getAttributeValue(null, "num"));
+            final String type = reader.getAttributeValue(null, "type");
+            final int key;
+            byte covered = 0;
+            if ("cond".equals(type)) {
+                key = num * 4 + COND;
+                if (count(reader, "truecount") > 0) {
+                    covered |= TRUE_COVERED;
+                }
+                if (count(reader, "falsecount") > 0) {
+                    covered |= FALSE_COVERED;
+                }
+            } else {
+                key = num * 4 + ("method".equals(type) ? METHOD : STMT);
+                if (count(reader, "count") > 0) {
+                    covered = COVERED;
+                }
+            }
+            addLine(key, covered);
+        }
+
+        private static long count(XMLStreamReader reader, String attribute) {
+            final String value = reader.getAttributeValue(null, attribute);
+            return value == null ? 0 : Long.parseLong(value);
+        }
+
+        FileCoverage toFileCoverage() {
+            final FileCoverage fileCoverage = new FileCoverage();
+            fileCoverage.setName(path);
+            fileCoverage.setClasses(best.getClasses());
+            fileCoverage.setLoc(best.getLoc());
+            fileCoverage.setNcloc(best.getNcloc());
+            if (size == 0) {
+                addMetrics(fileCoverage, best);
+            } else {
+                for (int i = 0; i < size; i++) {
+                    final int covered = bits[i];
+                    switch (keys[i] & 3) {
+                        case COND:
+                            fileCoverage.setConditionals(fileCoverage.getConditionals() + 2);
+                            fileCoverage.setCoveredconditionals(fileCoverage.getCoveredconditionals() + Integer.bitCount(covered));
+                            break;
+                        case METHOD:
+                            fileCoverage.setMethods(fileCoverage.getMethods() + 1);
+                            fileCoverage.setCoveredmethods(fileCoverage.getCoveredmethods() + covered);
+                            break;
+                        default:
+                            fileCoverage.setStatements(fileCoverage.getStatements() + 1);
+                            fileCoverage.setCoveredstatements(fileCoverage.getCoveredstatements() + covered);
+                    }
+                }
+                fileCoverage.setElements(fileCoverage.getMethods() + fileCoverage.getConditionals() + fileCoverage.getStatements());
+                fileCoverage.setCoveredelements(fileCoverage.getCoveredmethods() + fileCoverage.getCoveredconditionals()
+                        + fileCoverage.getCoveredstatements());
+                fileCoverage.setComplexity(best.getComplexity());
+            }
+            for (ClassCoverage c : classes.values()) {
+                // copied, as the names of the classes are qualified when the paths are trimmed
+                final ClassCoverage classCoverage = new ClassCoverage();
+                classCoverage.setName(c.getName());
+                addMetrics(classCoverage, c);
+                fileCoverage.addClassCoverage(classCoverage);
+            }
+            return fileCoverage;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
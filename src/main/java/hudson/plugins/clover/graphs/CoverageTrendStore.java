@@ -0,0 +1,305 @@
+package hudson.plugins.clover.graphs;
+
+import hudson.Extension;
+import hudson.model.Job;
+import hudson.model.Run;
+import hudson.model.listeners.RunListener;
+import hudson.plugins.clover.CloverBuildAction;
+import hudson.plugins.clover.Ratio;
+import hudson.plugins.clover.results.AbstractCloverMetrics;
+import hudson.plugins.clover.results.Messages;
+import hudson.util.DataSetBuilder;
+import hudson.util.Graph;
+import org.kohsuke.stapler.Stapler;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Append-only, per job and reportId store of the project level coverage counters of every published build.
+ * Trend graphs are drawn from this file instead of loading the full coverage report of each historical build.
+ *
+ * <p>The file consists of a header (magic, version) followed by fixed-width records: build number, build
+ * timestamp and the eight method/conditional/statement/element counters.</p>
+ *
+ * <p>The records of a build are removed when the build is deleted, see {@link CleanupListener}.</p>
+ */
+public final class CoverageTrendStore {
+
+    static final int MAGIC = 0x434C5654; // "CLVT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 8;
+    static final int RECORD_SIZE = 4 + 8 + 8 * 4;
+
+    private static final Logger LOGGER = Logger.getLogger(CoverageTrendStore.class.getName());
+
+    /** Do not instantiate CoverageTrendStore. */
+    private CoverageTrendStore() {
+    }
+
+    /**
+     * Gets the trend file of the given job and reportId.
+     */
+    public static File getFile(Job<?, ?> job, String reportId) {
+        return new File(job.getRootDir(),
+                (reportId == null || reportId.isEmpty()) ? "clover-trend.dat" : "clover-trend-" + reportId + ".dat");
+    }
+
+    public static boolean exists(Job<?, ?> job, String reportId) {
+        return getFile(job, reportId).isFile();
+    }
+
+    /**
+     * Appends the given entries, creating the file if necessary.
+     */
+    public static void append(Job<?, ?> job, String reportId, Collection<Entry> entries) throws IOException {
+        append(getFile(job, reportId), entries);
+    }
+
+    static synchronized void append(File file, Collection<Entry> entries) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            final boolean empty = channel.size() == 0;
+            final ByteBuffer buffer = ByteBuffer.allocate((empty ? HEADER_SIZE : 0) + entries.size() * RECORD_SIZE);
+            if (empty) {
+                buffer.putInt(MAGIC).putInt(VERSION);
+            }
+            for (Entry e : entries) {
+                e.writeTo(buffer);
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Reads all entries of the given job and reportId, ordered by build number. When a build has been recorded
+     * more than once the last record wins; an incomplete trailing record is ignored.
+     *
+     * @return the entries, empty if the store does not exist
+     */
+    public static List<Entry> read(Job<?, ?> job, String reportId) throws IOException {
+        return read(getFile(job, reportId));
+    }
+
+    static List<Entry> read(File file) throws IOException {
+        if (!file.isFile()) {
+            return Collections.emptyList();
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException(file + " is not a coverage trend file");
+        }
+        final int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported coverage trend version " + version + " in " + file);
+        }
+        final TreeMap<Integer, Entry> entries = new TreeMap<>();
+        while (buffer.remaining() >= RECORD_SIZE) {
+            final Entry e = Entry.readFrom(buffer);
+            entries.put(e.buildNumber, e);
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Removes the records of the given build by rewriting the store without them.
+     */
+    static synchronized void remove(File file, int buildNumber) throws IOException {
+        final List<Entry> entries = read(file);
+        if (!entries.removeIf(e -> e.buildNumber == buildNumber)) {
+            return;
+        }
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            Files.deleteIfExists(tmp.toPath());
+            append(tmp, entries);
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    /**
+     * Reads the entries of the given job and reportId up to the given build, limited to the given window.
+     */
+    public static List<Entry> read(Job<?, ?> job, String reportId, int upToBuild, TrendWindow window)
+            throws IOException {
+        final List<Entry> entries = read(job, reportId);
+        int end = entries.size();
+        while (end > 0 && entries.get(end - 1).buildNumber > upToBuild) {
+            end--;
+        }
+        return window.apply(entries.subList(0, end));
+    }
+
+    /**
+     * Creates a trend graph of the given build and the builds before it, drawn from the store only. The window is
+     * taken from the current request, see {@link TrendWindow#forRequest}.
+     */
+    public static Graph createGraph(final Run<?, ?> build, final String reportId) {
+        final TrendWindow window = TrendWindow.forRequest(Stapler.getCurrentRequest2());
+        return new GraphImpl(build.getTimestamp()) {
+            @Override
+            protected DataSetBuilder<String, BuildNumberLabel> createDataSet(AbstractCloverMetrics metrics) {
+                final DataSetBuilder<String, BuildNumberLabel> dsb = new DataSetBuilder<>();
+                final List<Entry> entries;
+                try {
+                    entries = read(build.getParent(), reportId, build.getNumber(), window);
+                } catch (IOException e) {
+                    return dsb;
+                }
+                for (Entry e : entries) {
+                    final BuildNumberLabel label = new BuildNumberLabel(e.buildNumber);
+                    dsb.add(e.getMethodCoverage().getPercentageFloat(), Messages.AbstractCloverMetrics_Label_method(), label);
+                    dsb.add(e.getConditionalCoverage().getPercentageFloat(), Messages.AbstractCloverMetrics_Label_conditional(), label);
+                    dsb.add(e.getStatementCoverage().getPercentageFloat(), Messages.AbstractCloverMetrics_Label_statement(), label);
+                }
+                return dsb;
+            }
+        };
+    }
+
+    /**
+     * Project level counters of one build.
+     */
+    public static final class Entry {
+        private final int buildNumber;
+        private final long timestamp;
+        private final int methods;
+        private final int coveredmethods;
+        private final int conditionals;
+        private final int coveredconditionals;
+        private final int statements;
+        private final int coveredstatements;
+        private final int elements;
+        private final int coveredelements;
+
+        Entry(int buildNumber, long timestamp, int methods, int coveredmethods, int conditionals,
+              int coveredconditionals, int statements, int coveredstatements, int elements, int coveredelements) {
+            this.buildNumber = buildNumber;
+            this.timestamp = timestamp;
+            this.methods = methods;
+            this.coveredmethods = coveredmethods;
+            this.conditionals = conditionals;
+            this.coveredconditionals = coveredconditionals;
+            this.statements = statements;
+            this.coveredstatements = coveredstatements;
+            this.elements = elements;
+            this.coveredelements = coveredelements;
+        }
+
+        public static Entry of(Run<?, ?> build, AbstractCloverMetrics m) {
+            return new Entry(build.getNumber(), build.getTimeInMillis(),
+                    m.getMethods(), m.getCoveredmethods(),
+                    m.getConditionals(), m.getCoveredconditionals(),
+                    m.getStatements(), m.getCoveredstatements(),
+                    m.getElements(), m.getCoveredelements());
+        }
+
+        static Entry readFrom(ByteBuffer in) {
+            return new Entry(in.getInt(), in.getLong(), in.getInt(), in.getInt(), in.getInt(), in.getInt(),
+                    in.getInt(), in.getInt(), in.getInt(), in.getInt());
+        }
+
+        void writeTo(ByteBuffer out) {
+            out.putInt(buildNumber).putLong(timestamp)
+                    .putInt(methods).putInt(coveredmethods)
+                    .putInt(conditionals).putInt(coveredconditionals)
+                    .putInt(statements).putInt(coveredstatements)
+                    .putInt(elements).putInt(coveredelements);
+        }
+
+        public int getBuildNumber() {
+            return buildNumber;
+        }
+
+        public long getTimestamp() {
+            return timestamp;
+        }
+
+        public Ratio getMethodCoverage() {
+            return Ratio.create(coveredmethods, methods);
+        }
+
+        public Ratio getConditionalCoverage() {
+            return Ratio.create(coveredconditionals, conditionals);
+        }
+
+        public Ratio getStatementCoverage() {
+            return Ratio.create(coveredstatements, statements);
+        }
+
+        public Ratio getElementCoverage() {
+            return Ratio.create(coveredelements, elements);
+        }
+    }
+
+    /**
+     * Graph label showing the build number, which does not need the {@link Run} to be loaded.
+     */
+    public static final class BuildNumberLabel implements Comparable<BuildNumberLabel> {
+        private final int number;
+
+        BuildNumberLabel(int number) {
+            this.number = number;
+        }
+
+        public int compareTo(BuildNumberLabel that) {
+            return Integer.compare(this.number, that.number);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof BuildNumberLabel && ((BuildNumberLabel) o).number == number;
+        }
+
+        @Override
+        public int hashCode() {
+            return number;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + number;
+        }
+    }
+
+    /**
+     * Drops the records of a build from the trend stores of its job when the build is deleted.
+     */
+    @Extension
+    public static final class CleanupListener extends RunListener<Run<?, ?>> {
+        @Override
+        public void onDeleted(Run<?, ?> r) {
+            for (CloverBuildAction action : r.getActions(CloverBuildAction.class)) {
+                try {
+                    remove(getFile(r.getParent(), action.getReportId()), r.getNumber());
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to remove " + r + " from the coverage trend of "
+                            + r.getParent(), e);
+                }
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package hudson.plugins.clover.graphs;
 
 import hudson.plugins.clover.results.AbstractCloverMetrics;
-import hudson.util.ChartUtil;
 import hudson.util.ColorPalette;
 import hudson.util.DataSetBuilder;
 import hudson.util.Graph;
@@ -32,7 +31,17 @@ public abstract class GraphImpl extends Graph {
         this.metrics = metrics;
     }
 
-    protected abstract DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> createDataSet(AbstractCloverMetrics metrics);
+    /**
+     * Creates a graph whose data set does not come from a loaded {@link AbstractCloverMetrics} instance.
+     */
+    protected GraphImpl(Calendar timestamp) {
+        this(null, timestamp);
+    }
+
+    /**
+     * @param metrics the metrics passed to the constructor, may be <code>null</code>
+     */
+    protected abstract DataSetBuilder<String, ?> createDataSet(AbstractCloverMetrics metrics);
 
     @Override
     protected JFreeChart createGraph() {
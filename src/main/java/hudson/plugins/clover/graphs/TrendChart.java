@@ -0,0 +1,118 @@
+package hudson.plugins.clover.graphs;
+
+import hudson.plugins.clover.Ratio;
+import hudson.plugins.clover.results.Messages;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import net.sf.json.JSONArray;
+import net.sf.json.JSONObject;
+
+/**
+ * Renders the entries of a {@link CoverageTrendStore} as a small SVG line chart or as JSON series, without going
+ * through JFreeChart and AWT. The SVG uses the same colors and series as {@link GraphImpl}.
+ */
+public final class TrendChart {
+
+    /** {@link hudson.util.ColorPalette#LINE_GRAPH}: red, blue, yellow. */
+    private static final String[] COLORS = {"#ef2929", "#729fcf", "#fce94f"};
+
+    private static final int LEFT = 40;
+    private static final int RIGHT = 10;
+    private static final int TOP = 10;
+    private static final int BOTTOM = 40;
+
+    /** Do not instantiate TrendChart. */
+    private TrendChart() {
+    }
+
+    /**
+     * Renders the method, conditional and statement coverage of the given entries as an SVG document.
+     */
+    public static String toSvg(List<CoverageTrendStore.Entry> entries, int width, int height) {
+        final int plotWidth = Math.max(1, width - LEFT - RIGHT);
+        final int plotHeight = Math.max(1, height - TOP - BOTTOM);
+        final StringBuilder svg = new StringBuilder(4096);
+        svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(width)
+                .append("\" height=\"").append(height).append("\" viewBox=\"0 0 ").append(width).append(' ').append(height)
+                .append("\" font-family=\"sans-serif\" font-size=\"10\">");
+        svg.append("<rect width=\"100%\" height=\"100%\" fill=\"white\"/>");
+
+        for (int percent = 0; percent <= 100; percent += 25) {
+            final int y = TOP + plotHeight - plotHeight * percent / 100;
+            svg.append("<line x1=\"").append(LEFT).append("\" y1=\"").append(y).append("\" x2=\"").append(LEFT + plotWidth)
+                    .append("\" y2=\"").append(y).append("\" stroke=\"#ccc\"/>");
+            svg.append("<text x=\"").append(LEFT - 4).append("\" y=\"").append(y + 3)
+                    .append("\" text-anchor=\"end\">").append(percent).append("%</text>");
+        }
+
+        final String[] labels = {
+                Messages.AbstractCloverMetrics_Label_method(),
+                Messages.AbstractCloverMetrics_Label_conditional(),
+                Messages.AbstractCloverMetrics_Label_statement()};
+        final List<Function<CoverageTrendStore.Entry, Ratio>> series = Arrays.asList(
+                CoverageTrendStore.Entry::getMethodCoverage,
+                CoverageTrendStore.Entry::getConditionalCoverage,
+                CoverageTrendStore.Entry::getStatementCoverage);
+        final int n = entries.size();
+        for (int s = 0; s < series.size() && n > 0; s++) {
+            svg.append("<polyline fill=\"none\" stroke-width=\"2\" stroke=\"").append(COLORS[s]).append("\" points=\"");
+            for (int i = 0; i < n; i++) {
+                final float x = LEFT + (n == 1 ? plotWidth / 2f : plotWidth * i / (float) (n - 1));
+                final float y = TOP + plotHeight - plotHeight * series.get(s).apply(entries.get(i)).getPercentageFloat() / 100f;
+                svg.append(String.format(Locale.ROOT, "%.1f,%.1f ", x, y));
+            }
+            svg.append("\"/>");
+        }
+
+        if (n > 0) {
+            final int labelY = TOP + plotHeight + 12;
+            svg.append("<text x=\"").append(LEFT).append("\" y=\"").append(labelY).append("\">#")
+                    .append(entries.get(0).getBuildNumber()).append("</text>");
+            svg.append("<text x=\"").append(LEFT + plotWidth).append("\" y=\"").append(labelY)
+                    .append("\" text-anchor=\"end\">#").append(entries.get(n - 1).getBuildNumber()).append("</text>");
+        }
+
+        final int legendY = height - 8;
+        for (int s = 0; s < labels.length; s++) {
+            final int x = LEFT + s * Math.max(60, plotWidth / labels.length);
+            svg.append("<rect x=\"").append(x).append("\" y=\"").append(legendY - 8)
+                    .append("\" width=\"10\" height=\"10\" fill=\"").append(COLORS[s]).append("\"/>");
+            svg.append("<text x=\"").append(x + 14).append("\" y=\"").append(legendY).append("\">")
+                    .append(escape(labels[s])).append("</text>");
+        }
+        return svg.append("</svg>").toString();
+    }
+
+    /**
+     * Renders the given entries as parallel arrays of build numbers, timestamps and coverage percentages.
+     */
+    public static JSONObject toJSON(List<CoverageTrendStore.Entry> entries) {
+        final JSONArray builds = new JSONArray();
+        final JSONArray timestamps = new JSONArray();
+        final JSONArray method = new JSONArray();
+        final JSONArray conditional = new JSONArray();
+        final JSONArray statement = new JSONArray();
+        final JSONArray element = new JSONArray();
+        for (CoverageTrendStore.Entry e : entries) {
+            builds.element(e.getBuildNumber());
+            timestamps.element(e.getTimestamp());
+            method.element(e.getMethodCoverage().getPercentageFloat());
+            conditional.element(e.getConditionalCoverage().getPercentageFloat());
+            statement.element(e.getStatementCoverage().getPercentageFloat());
+            element.element(e.getElementCoverage().getPercentageFloat());
+        }
+        return new JSONObject()
+                .element("builds", builds)
+                .element("timestamps", timestamps)
+                .element("method", method)
+                .element("conditional", conditional)
+                .element("statement", statement)
+                .element("element", element);
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+    }
+}
@@ -0,0 +1,139 @@
+package hudson.plugins.clover.graphs;
+
+import hudson.plugins.clover.CloverGlobalConfiguration;
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import org.kohsuke.stapler.StaplerRequest2;
+
+/**
+ * How much of the history of a job a coverage trend shows: the latest builds one by one, and the builds before them
+ * downsampled to one point per day or week, so the size of a trend stays bounded as the history of a job grows.
+ */
+public final class TrendWindow {
+
+    /**
+     * How builds older than the window are shown.
+     */
+    public enum Downsampling {
+        /** Not at all. */
+        NONE,
+        /** The last build of each day. */
+        DAY,
+        /** The last build of each ISO week, starting on Monday. */
+        WEEK;
+
+        /**
+         * Gets the first day of the day or week the given time falls in, in the given time zone.
+         */
+        LocalDate bucket(long timestamp, ZoneId zone) {
+            final LocalDate day = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+            return this == WEEK ? day.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)) : day;
+        }
+    }
+
+    private final int builds;
+    private final Downsampling downsampling;
+    private final ZoneId zone;
+
+    /**
+     * @param builds       the number of latest builds shown one by one, <code>0</code> for all
+     * @param downsampling how older builds are shown, by day or week in the time zone of the controller
+     */
+    public TrendWindow(int builds, Downsampling downsampling) {
+        this(builds, downsampling, ZoneId.systemDefault());
+    }
+
+    TrendWindow(int builds, Downsampling downsampling, ZoneId zone) {
+        this.builds = Math.max(0, builds);
+        this.downsampling = downsampling == null ? Downsampling.NONE : downsampling;
+        this.zone = zone;
+    }
+
+    /**
+     * Gets the window configured in {@link CloverGlobalConfiguration}.
+     */
+    public static TrendWindow getDefault() {
+        final CloverGlobalConfiguration config = CloverGlobalConfiguration.get();
+        return new TrendWindow(config.getTrendBuilds(), config.getTrendDownsampling());
+    }
+
+    /**
+     * Gets the window configured in {@link CloverGlobalConfiguration}, with the number of builds overridden by the
+     * <code>builds</code> parameter of the given request if present.
+     */
+    public static TrendWindow forRequest(StaplerRequest2 req) {
+        final TrendWindow window = getDefault();
+        final String builds = req == null ? null : req.getParameter("builds");
+        if (builds != null) {
+            try {
+                return window.limit(Integer.parseInt(builds.trim()));
+            } catch (NumberFormatException e) {
+                // keep the default
+            }
+        }
+        return window;
+    }
+
+    /**
+     * Gets a window showing the given number of builds one by one, clamped to between one and the number of builds
+     * of this window, so a request cannot ask for an unbounded trend.
+     */
+    TrendWindow limit(int requested) {
+        int limited = Math.max(1, requested);
+        if (builds > 0) {
+            limited = Math.min(limited, builds);
+        }
+        return new TrendWindow(limited, downsampling, zone);
+    }
+
+    public int getBuilds() {
+        return builds;
+    }
+
+    public Downsampling getDownsampling() {
+        return downsampling;
+    }
+
+    /**
+     * Whether the given number of builds, counted from the latest one, is still within the window.
+     */
+    public boolean includes(int count) {
+        return builds == 0 || count <= builds;
+    }
+
+    /**
+     * Applies the window to the given entries, ordered by build number.
+     *
+     * @return the entries of the latest builds, preceded by the last entry of each day or week before them
+     */
+    public List<CoverageTrendStore.Entry> apply(List<CoverageTrendStore.Entry> entries) {
+        if (builds == 0 || entries.size() <= builds) {
+            return entries;
+        }
+        final int start = entries.size() - builds;
+        final List<CoverageTrendStore.Entry> result = new ArrayList<>();
+        if (downsampling != Downsampling.NONE) {
+            for (int i = 0; i < start; i++) {
+                final CoverageTrendStore.Entry e = entries.get(i);
+                final LocalDate bucket = downsampling.bucket(e.getTimestamp(), zone);
+                final boolean lastOfBucket = i + 1 == start
+                        || !downsampling.bucket(entries.get(i + 1).getTimestamp(), zone).equals(bucket);
+                if (lastOfBucket) {
+                    result.add(e);
+                }
+            }
+        }
+        result.addAll(entries.subList(start, entries.size()));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return builds + "/" + downsampling + "/" + zone;
+    }
+}
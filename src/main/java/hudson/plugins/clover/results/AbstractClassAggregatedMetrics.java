@@ -41,5 +41,25 @@ abstract public class AbstractClassAggregatedMetrics extends AbstractCloverMetri
         this.ncloc = ncloc;
     }
 
+    /**
+     * Like {@link #addMetrics}, also adding the class and line counts.
+     */
+    public static void addClassMetrics(AbstractClassAggregatedMetrics target, AbstractClassAggregatedMetrics source) {
+        addMetrics(target, source);
+        target.setClasses(target.getClasses() + source.getClasses());
+        target.setLoc(target.getLoc() + source.getLoc());
+        target.setNcloc(target.getNcloc() + source.getNcloc());
+    }
+
+    /**
+     * Like {@link #maxMetrics}, also for the class and line counts.
+     */
+    public static void maxClassMetrics(AbstractClassAggregatedMetrics target, AbstractClassAggregatedMetrics source) {
+        maxMetrics(target, source);
+        target.setClasses(Math.max(target.getClasses(), source.getClasses()));
+        target.setLoc(Math.max(target.getLoc(), source.getLoc()));
+        target.setNcloc(Math.max(target.getNcloc(), source.getNcloc()));
+    }
 
+    private static final long serialVersionUID = 1L;
 }
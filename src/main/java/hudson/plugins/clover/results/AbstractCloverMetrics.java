@@ -4,17 +4,20 @@ import hudson.model.Run;
 import hudson.plugins.clover.CloverBuildAction;
 import hudson.plugins.clover.Ratio;
 import hudson.plugins.clover.graphs.GraphImpl;
+import hudson.plugins.clover.graphs.TrendWindow;
 import hudson.util.ChartUtil;
 import hudson.util.ChartUtil.NumberOnlyBuildLabel;
 import hudson.util.DataSetBuilder;
 import hudson.util.Graph;
+import org.kohsuke.stapler.Stapler;
 
+import java.io.Serializable;
 import java.util.Calendar;
 
 /**
  * Abstract Clover Coverage results.
  */
-abstract public class AbstractCloverMetrics {
+abstract public class AbstractCloverMetrics implements Serializable {
 
 
     private String name;
@@ -30,7 +33,9 @@ abstract public class AbstractCloverMetrics {
 
     private int elements;
     private int coveredelements;
-    private Run<?, ?> owner = null;
+
+    private int complexity;
+    private transient Run<?, ?> owner = null;
 
     public Ratio getMethodCoverage() {
         return Ratio.create(coveredmethods, methods);
@@ -174,6 +179,24 @@ abstract public class AbstractCloverMetrics {
         this.coveredelements = coveredelements;
     }
 
+    /**
+     * Getter for property 'complexity', the cyclomatic complexity of the code.
+     *
+     * @return Value for property 'complexity'.
+     */
+    public int getComplexity() {
+        return complexity;
+    }
+
+    /**
+     * Setter for property 'complexity'.
+     *
+     * @param complexity Value to set for property 'complexity'.
+     */
+    public void setComplexity(int complexity) {
+        this.complexity = complexity;
+    }
+
     /**
      * Getter for property 'elements'.
      *
@@ -244,12 +267,15 @@ abstract public class AbstractCloverMetrics {
     public Graph getTrendGraph() {
         Run<?, ?> build = getOwner();
         Calendar t = build.getTimestamp();
+        // walking back loads every build, so older builds are not downsampled but left out
+        final TrendWindow window = TrendWindow.forRequest(Stapler.getCurrentRequest2());
         return new GraphImpl(this, t) {
             @Override
             protected DataSetBuilder<String, NumberOnlyBuildLabel> createDataSet(AbstractCloverMetrics metrics) {
                 DataSetBuilder<String, ChartUtil.NumberOnlyBuildLabel> dsb
                         = new DataSetBuilder<>();
-                for (AbstractCloverMetrics m = metrics; m != null; m = m.getPreviousResult()) {
+                int count = 0;
+                for (AbstractCloverMetrics m = metrics; m != null && window.includes(++count); m = m.getPreviousResult()) {
                     ChartUtil.NumberOnlyBuildLabel label = new ChartUtil.NumberOnlyBuildLabel(m.getOwner());
                     dsb.add(m.getMethodCoverage().getPercentageFloat(), Messages.AbstractCloverMetrics_Label_method(), label);
                     dsb.add(m.getConditionalCoverage().getPercentageFloat(), Messages.AbstractCloverMetrics_Label_conditional(), label);
@@ -260,4 +286,36 @@ abstract public class AbstractCloverMetrics {
         };
     }
 
+    /**
+     * Adds the counters of the source node to those of the target node, as when summing up children.
+     */
+    public static void addMetrics(AbstractCloverMetrics target, AbstractCloverMetrics source) {
+        target.setMethods(target.getMethods() + source.getMethods());
+        target.setCoveredmethods(target.getCoveredmethods() + source.getCoveredmethods());
+        target.setConditionals(target.getConditionals() + source.getConditionals());
+        target.setCoveredconditionals(target.getCoveredconditionals() + source.getCoveredconditionals());
+        target.setStatements(target.getStatements() + source.getStatements());
+        target.setCoveredstatements(target.getCoveredstatements() + source.getCoveredstatements());
+        target.setElements(target.getElements() + source.getElements());
+        target.setCoveredelements(target.getCoveredelements() + source.getCoveredelements());
+        target.setComplexity(target.getComplexity() + source.getComplexity());
+    }
+
+    /**
+     * Raises each counter of the target node to that of the source node where the source has more, as when merging
+     * the same node from several reports.
+     */
+    public static void maxMetrics(AbstractCloverMetrics target, AbstractCloverMetrics source) {
+        target.setMethods(Math.max(target.getMethods(), source.getMethods()));
+        target.setCoveredmethods(Math.max(target.getCoveredmethods(), source.getCoveredmethods()));
+        target.setConditionals(Math.max(target.getConditionals(), source.getConditionals()));
+        target.setCoveredconditionals(Math.max(target.getCoveredconditionals(), source.getCoveredconditionals()));
+        target.setStatements(Math.max(target.getStatements(), source.getStatements()));
+        target.setCoveredstatements(Math.max(target.getCoveredstatements(), source.getCoveredstatements()));
+        target.setElements(Math.max(target.getElements(), source.getElements()));
+        target.setCoveredelements(Math.max(target.getCoveredelements(), source.getCoveredelements()));
+        target.setComplexity(Math.max(target.getComplexity(), source.getComplexity()));
+    }
+
+    private static final long serialVersionUID = 1L;
 }
@@ -17,4 +17,6 @@ abstract public class AbstractFileAggregatedMetrics extends AbstractClassAggrega
     public void setFiles(int files) {
         this.files = files;
     }
+
+    private static final long serialVersionUID = 1L;
 }
@@ -14,4 +14,6 @@ public abstract class AbstractPackageAggregatedMetrics extends AbstractFileAggre
     public void setPackages(int packages) {
         this.packages = packages;
     }
+
+    private static final long serialVersionUID = 1L;
 }
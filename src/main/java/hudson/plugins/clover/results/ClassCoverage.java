@@ -6,6 +6,10 @@ import hudson.plugins.clover.CloverBuildAction;
  * Clover Coverage results for a specific class.
  */
 public class ClassCoverage extends AbstractCloverMetrics {
+
+    /** The file declaring the class, set once the result is attached to a build. */
+    private transient FileCoverage file;
+
     public AbstractCloverMetrics getPreviousResult() {
         CloverBuildAction action = getPreviousCloverBuildAction();
         if (action == null) {
@@ -13,5 +17,24 @@ public class ClassCoverage extends AbstractCloverMetrics {
         }
         return action.findClassCoverage(getName());
     }
-}
 
+    /**
+     * Gets the methods of the class. Clover records methods per file rather than per class, so they are only known
+     * for classes which are the only class of their file.
+     *
+     * @return the methods, <code>null</code> if unknown
+     */
+    public MethodCoverageTable getMethodTable() {
+        final FileCoverage f = file;
+        if (f == null || f.getClassCoverages().size() != 1) {
+            return null;
+        }
+        return f.getMethodTable();
+    }
+
+    void setFile(FileCoverage file) {
+        this.file = file;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
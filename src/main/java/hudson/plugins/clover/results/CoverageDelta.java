@@ -0,0 +1,321 @@
+package hudson.plugins.clover.results;
+
+import hudson.XmlFile;
+import hudson.model.Api;
+import hudson.model.Run;
+import hudson.plugins.clover.Ratio;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import org.kohsuke.stapler.export.Exported;
+import org.kohsuke.stapler.export.ExportedBean;
+
+/**
+ * What changed in the coverage of a report since the previous build: the packages, files and classes whose covered or
+ * total element counts differ. The delta is computed once when the report is published, by walking the two trees
+ * side by side with their children sorted by name, and stored next to the coverage data of the build, so showing it
+ * never loads the report of the previous build.
+ */
+@ExportedBean
+public final class CoverageDelta {
+
+    /**
+     * How a package, file or class changed.
+     */
+    public enum Status {
+        /** Not in the previous build. */
+        ADDED,
+        /** Only in the previous build. */
+        REMOVED,
+        /** In both builds, with different counts. */
+        CHANGED;
+
+        public String getDisplayName() {
+            switch (this) {
+                case ADDED:
+                    return Messages.CoverageDelta_Status_ADDED();
+                case REMOVED:
+                    return Messages.CoverageDelta_Status_REMOVED();
+                default:
+                    return Messages.CoverageDelta_Status_CHANGED();
+            }
+        }
+    }
+
+    private static final Comparator<AbstractCloverMetrics> BY_NAME =
+            Comparator.comparing(AbstractCloverMetrics::getName, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private int previousBuild;
+    private Change project;
+    private final List<Change> packages = new ArrayList<>();
+    private final List<Change> files = new ArrayList<>();
+    private final List<Change> classes = new ArrayList<>();
+
+    private transient Run<?, ?> owner;
+
+    private CoverageDelta() {
+    }
+
+    /**
+     * Gets the file the delta of the given build with a specific reportId is stored in.
+     */
+    public static File getFile(Run<?, ?> build, String reportId) {
+        return new File(build.getRootDir(),
+                (reportId == null || reportId.isEmpty()) ? "clover-delta.xml" : "clover-" + reportId + "-delta.xml");
+    }
+
+    /**
+     * Compares a report with the report of the previous build. A package, file or class which was added or removed is
+     * recorded on its own, without its children.
+     *
+     * @param result        the report
+     * @param previous      the report of the previous build
+     * @param previousBuild the number of the previous build
+     */
+    public static CoverageDelta compute(ProjectCoverage result, ProjectCoverage previous, int previousBuild) {
+        final CoverageDelta delta = new CoverageDelta();
+        delta.previousBuild = previousBuild;
+        delta.project = new Change(null, null, Status.CHANGED, previous, result);
+        join(previous.getPackageCoverages(), result.getPackageCoverages(), (before, after) -> {
+            final String url = name(before, after) + '/';
+            if (delta.record(delta.packages, url, before, after)) {
+                join(before.getFileCoverages(), after.getFileCoverages(), (beforeFile, afterFile) -> {
+                    final String fileUrl = url + name(beforeFile, afterFile) + '/';
+                    if (delta.record(delta.files, fileUrl, beforeFile, afterFile)) {
+                        join(beforeFile.getClassCoverages(), afterFile.getClassCoverages(), (beforeClass, afterClass) ->
+                                delta.record(delta.classes, fileUrl + name(beforeClass, afterClass) + '/',
+                                        beforeClass, afterClass));
+                    }
+                });
+            }
+        });
+        return delta;
+    }
+
+    /**
+     * Reads a delta stored with {@link #write(File)}.
+     */
+    public static CoverageDelta read(File file) throws IOException {
+        final Object delta = new XmlFile(file).read();
+        if (!(delta instanceof CoverageDelta)) {
+            throw new IOException("Not a coverage delta: " + file);
+        }
+        return (CoverageDelta) delta;
+    }
+
+    public void write(File file) throws IOException {
+        new XmlFile(file).write(this);
+    }
+
+    /**
+     * Visits the children of two nodes in name order, pairing the ones with the same name.
+     */
+    private static <T extends AbstractCloverMetrics> void join(List<T> before, List<T> after, Visitor<T> visitor) {
+        final List<T> left = sorted(before);
+        final List<T> right = sorted(after);
+        int i = 0;
+        int j = 0;
+        while (i < left.size() || j < right.size()) {
+            final int cmp = i == left.size() ? 1 : j == right.size() ? -1 : BY_NAME.compare(left.get(i), right.get(j));
+            if (cmp < 0) {
+                visitor.visit(left.get(i++), null);
+            } else if (cmp > 0) {
+                visitor.visit(null, right.get(j++));
+            } else {
+                visitor.visit(left.get(i++), right.get(j++));
+            }
+        }
+    }
+
+    private static <T extends AbstractCloverMetrics> List<T> sorted(List<T> nodes) {
+        final List<T> copy = new ArrayList<>(nodes);
+        copy.sort(BY_NAME);
+        return copy;
+    }
+
+    private static String name(AbstractCloverMetrics before, AbstractCloverMetrics after) {
+        return (after != null ? after : before).getName();
+    }
+
+    /**
+     * Records a pair of nodes if they differ.
+     *
+     * @return whether both nodes exist, so their children are to be compared
+     */
+    private boolean record(List<Change> changes, String url, AbstractCloverMetrics before, AbstractCloverMetrics after) {
+        if (before == null || after == null) {
+            changes.add(new Change(name(before, after), url, before == null ? Status.ADDED : Status.REMOVED, before, after));
+            return false;
+        }
+        if (before.getElements() != after.getElements() || before.getCoveredelements() != after.getCoveredelements()) {
+            changes.add(new Change(after.getName(), url, Status.CHANGED, before, after));
+        }
+        return true;
+    }
+
+    /**
+     * Gets the number of the build the report was compared with.
+     */
+    @Exported
+    public int getPreviousBuild() {
+        return previousBuild;
+    }
+
+    /**
+     * Gets the change of the whole report.
+     */
+    @Exported
+    public Change getProject() {
+        return project;
+    }
+
+    @Exported
+    public List<Change> getPackages() {
+        return Collections.unmodifiableList(packages);
+    }
+
+    @Exported
+    public List<Change> getFiles() {
+        return Collections.unmodifiableList(files);
+    }
+
+    @Exported
+    public List<Change> getClasses() {
+        return Collections.unmodifiableList(classes);
+    }
+
+    /**
+     * Whether no package, file or class changed.
+     */
+    public boolean isEmpty() {
+        return packages.isEmpty() && files.isEmpty() && classes.isEmpty();
+    }
+
+    /**
+     * Gets the number of packages, files and classes whose coverage dropped.
+     */
+    public int getRegressionCount() {
+        int count = 0;
+        for (List<Change> changes : List.of(packages, files, classes)) {
+            for (Change change : changes) {
+                if (change.isRegression()) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public Api getApi() {
+        return new Api(this);
+    }
+
+    public Run<?, ?> getOwner() {
+        return owner;
+    }
+
+    void setOwner(Run<?, ?> owner) {
+        this.owner = owner;
+    }
+
+    private interface Visitor<T> {
+        void visit(T before, T after);
+    }
+
+    /**
+     * The covered and total element counts of a package, file or class in both builds.
+     */
+    @ExportedBean(defaultVisibility = 2)
+    public static final class Change {
+        private final String name;
+        private final String url;
+        private final Status status;
+        private final int coveredBefore;
+        private final int elementsBefore;
+        private final int coveredAfter;
+        private final int elementsAfter;
+
+        Change(String name, String url, Status status, AbstractCloverMetrics before, AbstractCloverMetrics after) {
+            this.name = name;
+            this.url = url;
+            this.status = status;
+            this.coveredBefore = before == null ? 0 : before.getCoveredelements();
+            this.elementsBefore = before == null ? 0 : before.getElements();
+            this.coveredAfter = after == null ? 0 : after.getCoveredelements();
+            this.elementsAfter = after == null ? 0 : after.getElements();
+        }
+
+        @Exported
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Gets the URL of the coverage page, relative to the report.
+         */
+        public String getUrl() {
+            return url;
+        }
+
+        @Exported
+        public Status getStatus() {
+            return status;
+        }
+
+        @Exported
+        public int getCoveredBefore() {
+            return coveredBefore;
+        }
+
+        @Exported
+        public int getElementsBefore() {
+            return elementsBefore;
+        }
+
+        @Exported
+        public int getCoveredAfter() {
+            return coveredAfter;
+        }
+
+        @Exported
+        public int getElementsAfter() {
+            return elementsAfter;
+        }
+
+        public Ratio getCoverageBefore() {
+            return Ratio.create(coveredBefore, elementsBefore);
+        }
+
+        public Ratio getCoverageAfter() {
+            return Ratio.create(coveredAfter, elementsAfter);
+        }
+
+        /**
+         * Gets the change in element coverage in percentage points, <code>NaN</code> unless the package, file or
+         * class has elements in both builds.
+         */
+        @Exported
+        public float getChange() {
+            if (elementsBefore == 0 || elementsAfter == 0) {
+                return Float.NaN;
+            }
+            return getCoverageAfter().getPercentageFloat() - getCoverageBefore().getPercentageFloat();
+        }
+
+        public String getChangeStr() {
+            final float change = getChange();
+            return Float.isNaN(change) ? "" : String.format(Locale.ROOT, "%+.1f%%", change);
+        }
+
+        /**
+         * Whether the element coverage dropped.
+         */
+        public boolean isRegression() {
+            return getChange() < 0;
+        }
+    }
+}
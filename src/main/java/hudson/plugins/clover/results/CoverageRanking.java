@@ -0,0 +1,253 @@
+package hudson.plugins.clover.results;
+
+import hudson.model.Run;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * The classes and files of a report where tests are most wanted, ranked once when the report is published and stored
+ * with its {@link hudson.plugins.clover.CloverBuildAction}. Each ranking keeps only its top entries, selected with a
+ * bounded heap in a single pass over the tree, so showing the rankings never walks the tree.
+ */
+public final class CoverageRanking implements Serializable {
+
+    /** The number of entries kept per ranking. */
+    public static final int SIZE = Integer.getInteger(CoverageRanking.class.getName() + ".size", 20);
+
+    /**
+     * How the entries of a ranking are ordered.
+     */
+    public enum Order {
+        /** The most elements not covered. */
+        UNCOVERED,
+        /** The highest complexity times the ratio of elements not covered. */
+        RISK,
+        /** The biggest drop in element coverage since the previous build, in percentage points. */
+        DROP;
+
+        public String getDisplayName() {
+            switch (this) {
+                case UNCOVERED:
+                    return Messages.CoverageRanking_Order_UNCOVERED();
+                case RISK:
+                    return Messages.CoverageRanking_Order_RISK();
+                default:
+                    return Messages.CoverageRanking_Order_DROP();
+            }
+        }
+    }
+
+    private final Map<Order, List<Entry>> classes = new EnumMap<>(Order.class);
+    private final Map<Order, List<Entry>> files = new EnumMap<>(Order.class);
+
+    private transient Run<?, ?> owner;
+
+    private CoverageRanking() {
+    }
+
+    /**
+     * Ranks the classes and files of a report.
+     *
+     * @param result   the report
+     * @param previous the report of the previous build, may be <code>null</code>
+     * @param size     the number of entries kept per ranking
+     */
+    public static CoverageRanking compute(ProjectCoverage result, ProjectCoverage previous, int size) {
+        final Map<Order, TopN> classes = new EnumMap<>(Order.class);
+        final Map<Order, TopN> files = new EnumMap<>(Order.class);
+        for (Order order : Order.values()) {
+            classes.put(order, new TopN(order, size));
+            files.put(order, new TopN(order, size));
+        }
+        for (PackageCoverage p : result.getPackageCoverages()) {
+            for (FileCoverage f : p.getFileCoverages()) {
+                final FileCoverage before = previous == null ? null : previous.findFileCoverage(f.getName());
+                final Entry file = new Entry(p.getName(), f.getName(), null, f, before);
+                for (TopN top : files.values()) {
+                    top.offer(file);
+                }
+                for (ClassCoverage c : f.getClassCoverages()) {
+                    final ClassCoverage was = previous == null ? null : previous.findClassCoverage(c.getName());
+                    final Entry cls = new Entry(p.getName(), f.getName(), c.getName(), c, was);
+                    for (TopN top : classes.values()) {
+                        top.offer(cls);
+                    }
+                }
+            }
+        }
+        final CoverageRanking ranking = new CoverageRanking();
+        for (Order order : Order.values()) {
+            ranking.classes.put(order, classes.get(order).toList());
+            ranking.files.put(order, files.get(order).toList());
+        }
+        return ranking;
+    }
+
+    /**
+     * Gets the top classes in the given order, the first one ranked highest.
+     */
+    public List<Entry> getClasses(Order order) {
+        final List<Entry> entries = classes.get(order);
+        return entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Gets the top files in the given order, the first one ranked highest.
+     */
+    public List<Entry> getFiles(Order order) {
+        final List<Entry> entries = files.get(order);
+        return entries == null ? Collections.emptyList() : Collections.unmodifiableList(entries);
+    }
+
+    public Order[] getOrders() {
+        return Order.values();
+    }
+
+    public Run<?, ?> getOwner() {
+        return owner;
+    }
+
+    void setOwner(Run<?, ?> owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * A ranked class or file.
+     */
+    public static final class Entry implements Serializable {
+        private final String packageName;
+        private final String fileName;
+        private final String className;
+        private final int elements;
+        private final int coveredElements;
+        private final int complexity;
+        /** The element coverage of the previous build minus that of this build, <code>NaN</code> if unknown. */
+        private final float drop;
+
+        Entry(String packageName, String fileName, String className, AbstractCloverMetrics m, AbstractCloverMetrics before) {
+            this.packageName = packageName;
+            this.fileName = fileName;
+            this.className = className;
+            this.elements = m.getElements();
+            this.coveredElements = m.getCoveredelements();
+            this.complexity = m.getComplexity();
+            this.drop = before == null || before.getElements() == 0 || elements == 0
+                    ? Float.NaN
+                    : before.getElementCoverage().getPercentageFloat() - m.getElementCoverage().getPercentageFloat();
+        }
+
+        /**
+         * Gets the name of the class, or of the file for a file entry.
+         */
+        public String getName() {
+            return className != null ? className : fileName;
+        }
+
+        /**
+         * Gets the URL of the coverage page of the class or file, relative to the report.
+         */
+        public String getUrl() {
+            return packageName + '/' + fileName + '/' + (className != null ? className + '/' : "");
+        }
+
+        public int getElements() {
+            return elements;
+        }
+
+        public int getCoveredElements() {
+            return coveredElements;
+        }
+
+        public int getUncovered() {
+            return elements - coveredElements;
+        }
+
+        public int getComplexity() {
+            return complexity;
+        }
+
+        /**
+         * Gets the complexity times the ratio of elements not covered.
+         */
+        public float getRisk() {
+            return elements == 0 ? 0 : complexity * (float) getUncovered() / elements;
+        }
+
+        /**
+         * Gets the drop in element coverage since the previous build in percentage points, <code>NaN</code> if the
+         * class or file was not covered by the previous build.
+         */
+        public float getDrop() {
+            return drop;
+        }
+
+        public String getRiskStr() {
+            return String.format(Locale.ROOT, "%.1f", getRisk());
+        }
+
+        /**
+         * Gets the drop formatted as a percentage, empty unless coverage dropped.
+         */
+        public String getDropStr() {
+            return drop > 0 ? String.format(Locale.ROOT, "%.1f%%", drop) : "";
+        }
+
+        float getScore(Order order) {
+            switch (order) {
+                case UNCOVERED:
+                    return getUncovered();
+                case RISK:
+                    return getRisk();
+                default:
+                    return Float.isNaN(drop) ? 0 : drop;
+            }
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Keeps the entries with the highest positive scores in a min-heap of bounded size.
+     */
+    private static final class TopN {
+        private final int size;
+        private final Comparator<Entry> comparator;
+        private final PriorityQueue<Entry> heap;
+        private final Order order;
+
+        TopN(Order order, int size) {
+            this.order = order;
+            this.size = Math.max(0, size);
+            this.comparator = Comparator.<Entry>comparingDouble(e -> e.getScore(order))
+                    .thenComparing(Entry::getName, Comparator.nullsLast(Comparator.reverseOrder()));
+            this.heap = new PriorityQueue<>(Math.max(1, this.size), comparator);
+        }
+
+        void offer(Entry e) {
+            if (size == 0 || e.getScore(order) <= 0) {
+                return;
+            }
+            if (heap.size() < size) {
+                heap.add(e);
+            } else if (comparator.compare(e, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(e);
+            }
+        }
+
+        List<Entry> toList() {
+            final List<Entry> list = new ArrayList<>(heap);
+            list.sort(comparator.reversed());
+            return list;
+        }
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,220 @@
+package hudson.plugins.clover.results;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compact binary form of a {@link ProjectCoverage} tree, stored next to the clover.xml in the build directory so
+ * that the tree can be reloaded without parsing the XML again.
+ *
+ * <p>Layout (big endian): a header (magic, version), a string table (count, then length-prefixed UTF-8 names)
+ * and one fixed-width int record per node in depth-first order: name index, child count and the
+ * {@value #METRIC_COUNT} metric counters. Version 1 snapshots lack the last counter, the complexity, which then
+ * reads as <code>0</code>. The XML report remains the source of truth where it was kept; a snapshot which cannot be
+ * read is rebuilt from it.</p>
+ */
+public final class CoverageSnapshot {
+
+    static final int MAGIC = 0x434C5653; // "CLVS"
+    static final int VERSION = 2;
+    /** The oldest version which can still be read. */
+    static final int MIN_VERSION = 1;
+    static final int METRIC_COUNT = 14;
+
+    /** Do not instantiate CoverageSnapshot. */
+    private CoverageSnapshot() {
+    }
+
+    /**
+     * Writes the tree to the given file. The data is written to a temporary file first and then moved into place,
+     * so readers never see a partially written snapshot and a failed write leaves the previous file, if any.
+     */
+    public static void write(ProjectCoverage project, File file) throws IOException {
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        collectStrings(project, strings);
+
+        final File tmp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            writeTo(project, strings, tmp);
+            try {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+    }
+
+    private static void writeTo(ProjectCoverage project, Map<String, Integer> strings, File tmp) throws IOException {
+        try (FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            for (String s : strings.keySet()) {
+                final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            writeRecord(out, strings, project, project.getPackageCoverages().size());
+            for (PackageCoverage p : project.getPackageCoverages()) {
+                writeRecord(out, strings, p, p.getFileCoverages().size());
+                for (FileCoverage f : p.getFileCoverages()) {
+                    writeRecord(out, strings, f, f.getClassCoverages().size());
+                    for (ClassCoverage c : f.getClassCoverages()) {
+                        writeRecord(out, strings, c, 0);
+                    }
+                }
+            }
+            out.flush();
+            // the snapshot may be the only copy of the report, make sure it is on disk before it replaces the old one
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Loads the tree from the given file through a memory mapped, read-only view of it.
+     *
+     * @throws IOException if the file cannot be read or is not a snapshot of a supported version
+     */
+    public static ProjectCoverage read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a coverage snapshot");
+            }
+            final int version = buffer.getInt();
+            if (version < MIN_VERSION || version > VERSION) {
+                throw new IOException("Unsupported coverage snapshot version " + version + " in " + file);
+            }
+            final String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                final byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            final ProjectCoverage project = new ProjectCoverage();
+            final int packages = readRecord(buffer, strings, version, project);
+            for (int i = 0; i < packages; i++) {
+                final PackageCoverage p = new PackageCoverage();
+                final int files = readRecord(buffer, strings, version, p);
+                for (int j = 0; j < files; j++) {
+                    final FileCoverage f = new FileCoverage();
+                    final int classes = readRecord(buffer, strings, version, f);
+                    for (int k = 0; k < classes; k++) {
+                        final ClassCoverage c = new ClassCoverage();
+                        readRecord(buffer, strings, version, c);
+                        f.addClassCoverage(c);
+                    }
+                    p.addFileCoverage(f);
+                }
+                project.addPackageCoverage(p);
+            }
+            return project;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupted coverage snapshot " + file, e);
+        }
+    }
+
+    private static void collectStrings(ProjectCoverage project, Map<String, Integer> strings) {
+        intern(project.getName(), strings);
+        for (PackageCoverage p : project.getPackageCoverages()) {
+            intern(p.getName(), strings);
+            for (FileCoverage f : p.getFileCoverages()) {
+                intern(f.getName(), strings);
+                for (ClassCoverage c : f.getClassCoverages()) {
+                    intern(c.getName(), strings);
+                }
+            }
+        }
+    }
+
+    private static void intern(String s, Map<String, Integer> strings) {
+        if (s != null && !strings.containsKey(s)) {
+            strings.put(s, strings.size());
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, Map<String, Integer> strings, AbstractCloverMetrics m,
+                                    int children) throws IOException {
+        out.writeInt(m.getName() == null ? -1 : strings.get(m.getName()));
+        out.writeInt(children);
+        out.writeInt(m.getMethods());
+        out.writeInt(m.getCoveredmethods());
+        out.writeInt(m.getConditionals());
+        out.writeInt(m.getCoveredconditionals());
+        out.writeInt(m.getStatements());
+        out.writeInt(m.getCoveredstatements());
+        out.writeInt(m.getElements());
+        out.writeInt(m.getCoveredelements());
+        if (m instanceof AbstractClassAggregatedMetrics) {
+            final AbstractClassAggregatedMetrics c = (AbstractClassAggregatedMetrics) m;
+            out.writeInt(c.getClasses());
+            out.writeInt(c.getLoc());
+            out.writeInt(c.getNcloc());
+        } else {
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+        }
+        out.writeInt(m instanceof AbstractFileAggregatedMetrics ? ((AbstractFileAggregatedMetrics) m).getFiles() : 0);
+        out.writeInt(m instanceof AbstractPackageAggregatedMetrics ? ((AbstractPackageAggregatedMetrics) m).getPackages() : 0);
+        out.writeInt(m.getComplexity());
+    }
+
+    /**
+     * Reads one node record into the given node.
+     *
+     * @return the number of child records which follow
+     */
+    private static int readRecord(ByteBuffer in, String[] strings, int version, AbstractCloverMetrics m) {
+        final int name = in.getInt();
+        m.setName(name < 0 ? null : strings[name]);
+        final int children = in.getInt();
+        m.setMethods(in.getInt());
+        m.setCoveredmethods(in.getInt());
+        m.setConditionals(in.getInt());
+        m.setCoveredconditionals(in.getInt());
+        m.setStatements(in.getInt());
+        m.setCoveredstatements(in.getInt());
+        m.setElements(in.getInt());
+        m.setCoveredelements(in.getInt());
+        final int classes = in.getInt();
+        final int loc = in.getInt();
+        final int ncloc = in.getInt();
+        if (m instanceof AbstractClassAggregatedMetrics) {
+            final AbstractClassAggregatedMetrics c = (AbstractClassAggregatedMetrics) m;
+            c.setClasses(classes);
+            c.setLoc(loc);
+            c.setNcloc(ncloc);
+        }
+        final int files = in.getInt();
+        if (m instanceof AbstractFileAggregatedMetrics) {
+            ((AbstractFileAggregatedMetrics) m).setFiles(files);
+        }
+        final int packages = in.getInt();
+        if (m instanceof AbstractPackageAggregatedMetrics) {
+            ((AbstractPackageAggregatedMetrics) m).setPackages(packages);
+        }
+        if (version >= 2) {
+            m.setComplexity(in.getInt());
+        }
+        return children;
+    }
+}
@@ -5,8 +5,15 @@ import hudson.plugins.clover.CloverBuildAction;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Clover Coverage results for a specific file.
@@ -15,6 +22,13 @@ public class FileCoverage extends AbstractClassAggregatedMetrics {
 
     private final List<ClassCoverage> classCoverages = new ArrayList<>();
 
+    /** Lazily built name index of {@link #classCoverages}, dropped whenever a class is added. */
+    private transient volatile Map<String, ClassCoverage> classIndex;
+
+    private transient String reportId;
+    /** The line coverage read from the {@link LineCoverageStore} of the build, dropped under memory pressure. */
+    private transient volatile SoftReference<FileLineCoverage> lineCoverage;
+
     public List<ClassCoverage> getChildren() {
         return getClassCoverages();
     }
@@ -24,6 +38,7 @@ public class FileCoverage extends AbstractClassAggregatedMetrics {
     }
 
     public boolean addClassCoverage(ClassCoverage result) {
+        classIndex = null;
         return classCoverages.add(result);
     }
 
@@ -32,10 +47,15 @@ public class FileCoverage extends AbstractClassAggregatedMetrics {
     }
 
     public ClassCoverage findClassCoverage(String name) {
-        for (ClassCoverage i : classCoverages) {
-            if (name.equals(i.getName())) return i;
+        Map<String, ClassCoverage> index = classIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (ClassCoverage i : classCoverages) {
+                index.putIfAbsent(i.getName(), i);
+            }
+            classIndex = index;
         }
-        return null;
+        return index.get(name);
     }
 
     public AbstractCloverMetrics getPreviousResult() {
@@ -46,10 +66,94 @@ public class FileCoverage extends AbstractClassAggregatedMetrics {
         return action.findFileCoverage(getName());
     }
 
+    /**
+     * Gets the line coverage of the file. It is only read when first asked for, e.g. when the page of the file is
+     * opened.
+     *
+     * @return the line coverage, <code>null</code> if none was recorded for the build
+     */
+    public FileLineCoverage getLineCoverage() {
+        final SoftReference<FileLineCoverage> ref = lineCoverage;
+        FileLineCoverage lines = ref == null ? null : ref.get();
+        if (lines != null) {
+            return lines;
+        }
+        final Run<?, ?> owner = getOwner();
+        if (owner == null) {
+            return null;
+        }
+        final File file = LineCoverageStore.getFile(owner, reportId);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            lines = LineCoverageStore.read(file, getName());
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the line coverage of " + getName() + " from " + file, e);
+            return null;
+        }
+        if (lines != null) {
+            lineCoverage = new SoftReference<>(lines);
+        }
+        return lines;
+    }
+
+    /**
+     * Gets a page of the source of the file, if the sources were archived when the report was published.
+     *
+     * @param page the page, starting at <code>0</code>, e.g. the <code>page</code> parameter of the request
+     * @return the page, <code>null</code> if the source of the file was not archived
+     */
+    public SourcePage getSourcePage(String page) {
+        final Run<?, ?> owner = getOwner();
+        if (owner == null) {
+            return null;
+        }
+        final File archive = SourcePage.getArchive(owner, reportId);
+        if (!archive.isFile()) {
+            return null;
+        }
+        int number = 0;
+        if (page != null) {
+            try {
+                number = Math.max(0, Integer.parseInt(page.trim()));
+            } catch (NumberFormatException e) {
+                // first page
+            }
+        }
+        try {
+            return SourcePage.read(archive, getName(), getLineCoverage(), number);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to read the source of " + getName() + " from " + archive, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets the methods declared in the file, see {@link #getLineCoverage()}.
+     *
+     * @return the methods, <code>null</code> if no line coverage was recorded for the build
+     */
+    public MethodCoverageTable getMethodTable() {
+        final FileLineCoverage lines = getLineCoverage();
+        return lines == null ? null : lines.getMethods();
+    }
+
+    void setReportId(String reportId) {
+        this.reportId = reportId;
+        lineCoverage = null;
+        for (ClassCoverage classCoverage : classCoverages) {
+            classCoverage.setFile(this);
+        }
+    }
+
     public void setOwner(Run<?, ?> owner) {
         super.setOwner(owner);    //To change body of overridden methods use File | Settings | File Templates.
         for (ClassCoverage classCoverage : classCoverages) {
             classCoverage.setOwner(owner);
         }
     }
+
+    private static final Logger LOGGER = Logger.getLogger(FileCoverage.class.getName());
+    private static final long serialVersionUID = 1L;
 }
@@ -0,0 +1,184 @@
+package hudson.plugins.clover.results;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Line coverage of a single file, as recorded by the <code>line</code> elements of clover.xml. The lines are held in
+ * parallel arrays ordered by line number instead of one object per line, with the covered lines as a bitmap.
+ * Instances are read from a {@link LineCoverageStore} and are immutable.
+ */
+public final class FileLineCoverage {
+
+    /**
+     * The kind of a line, the <code>type</code> attribute of its element.
+     */
+    public enum Type {
+        /** A statement, covered if executed. */
+        STMT,
+        /** The declaration of a method, covered if the method was entered. */
+        METHOD,
+        /** A conditional, covered if both of its branches were taken. */
+        COND;
+
+        /**
+         * Gets the type of the given attribute value; a missing or unknown value is a statement.
+         */
+        static Type of(String type) {
+            if (type == null) {
+                return STMT;
+            }
+            switch (type) {
+                case "method":
+                    return METHOD;
+                case "cond":
+                    return COND;
+                default:
+                    return STMT;
+            }
+        }
+    }
+
+    private static final Type[] TYPES = Type.values();
+
+    private final int[] lines;
+    private final byte[] types;
+    private final int[] hits;
+    /** The false counts of the conditionals only, in line order. */
+    private final int[] falseHits;
+    /** For each line, the index of its false count in {@link #falseHits}, or <code>-1</code>. */
+    private final int[] condIndex;
+    private final BitSet covered;
+    private final MethodCoverageTable methods;
+
+    FileLineCoverage(int[] lines, byte[] types, int[] hits, int[] falseHits, MethodCoverageTable methods) {
+        this.lines = lines;
+        this.types = types;
+        this.hits = hits;
+        this.falseHits = falseHits;
+        this.methods = methods;
+        this.condIndex = new int[lines.length];
+        this.covered = new BitSet(lines.length);
+        int cond = 0;
+        for (int i = 0; i < lines.length; i++) {
+            if (types[i] == Type.COND.ordinal()) {
+                condIndex[i] = cond;
+                if (hits[i] > 0 && falseHits[cond] > 0) {
+                    covered.set(i);
+                }
+                cond++;
+            } else {
+                condIndex[i] = -1;
+                if (hits[i] > 0) {
+                    covered.set(i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the number of recorded lines. A source line may be recorded more than once, e.g. as a method and as a
+     * conditional.
+     */
+    public int size() {
+        return lines.length;
+    }
+
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    public Type getType(int index) {
+        return TYPES[types[index]];
+    }
+
+    /**
+     * Gets how often the line was executed, for a conditional how often it evaluated to <code>true</code>.
+     */
+    public int getHits(int index) {
+        return hits[index];
+    }
+
+    /**
+     * Gets how often a conditional evaluated to <code>false</code>, <code>0</code> for other lines.
+     */
+    public int getFalseHits(int index) {
+        return condIndex[index] < 0 ? 0 : falseHits[condIndex[index]];
+    }
+
+    public boolean isCovered(int index) {
+        return covered.get(index);
+    }
+
+    /**
+     * Whether the line is a conditional of which only one branch was taken.
+     */
+    public boolean isPartial(int index) {
+        return condIndex[index] >= 0 && !covered.get(index) && (hits[index] > 0 || getFalseHits(index) > 0);
+    }
+
+    /**
+     * Gets the index of the first record of the given line number.
+     *
+     * @return the index, <code>-1</code> if the line was not recorded
+     */
+    public int indexOf(int line) {
+        int i = Arrays.binarySearch(lines, line);
+        if (i < 0) {
+            return -1;
+        }
+        while (i > 0 && lines[i - 1] == line) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Gets the methods declared in the file.
+     */
+    public MethodCoverageTable getMethods() {
+        return methods;
+    }
+
+    /**
+     * Gets the number of recorded lines which are not covered.
+     */
+    public int getUncoveredCount() {
+        return lines.length - covered.cardinality();
+    }
+
+    /**
+     * Gets the line numbers which are not covered as a list of ranges, e.g. <code>12-14, 20</code>. A line counts as
+     * uncovered if any of its records is.
+     */
+    public String getUncoveredRanges() {
+        final StringBuilder ranges = new StringBuilder();
+        int start = -1;
+        int end = -1;
+        for (int i = covered.nextClearBit(0); i < lines.length; i = covered.nextClearBit(i + 1)) {
+            final int line = lines[i];
+            if (start >= 0 && line <= end + 1) {
+                end = Math.max(end, line);
+                continue;
+            }
+            appendRange(ranges, start, end);
+            start = line;
+            end = line;
+        }
+        appendRange(ranges, start, end);
+        return ranges.toString();
+    }
+
+    private static void appendRange(StringBuilder ranges, int start, int end) {
+        if (start < 0) {
+            return;
+        }
+        if (ranges.length() > 0) {
+            ranges.append(", ");
+        }
+        ranges.append(start);
+        if (end > start) {
+            ranges.append('-').append(end);
+        }
+    }
+}
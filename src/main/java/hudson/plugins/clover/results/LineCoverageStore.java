@@ -0,0 +1,374 @@
+package hudson.plugins.clover.results;
+
+import hudson.model.Run;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary store of the line coverage of all files of a report, kept next to the coverage snapshot in the build
+ * directory. It is written once while publishing, streaming the <code>line</code> elements of clover.xml, and read
+ * one file at a time when the page of that file is opened, so the lines of a report are never all in memory.
+ *
+ * <p>Layout (big endian): a header (magic, version), one block per file, an index and the offset of the index as
+ * the last eight bytes. A block holds the line count, the conditional count and the columns of the lines: line
+ * numbers, types, hit counts and the false counts of the conditionals. Since version 2 it is followed by the methods
+ * of the file: the method count, a string table of their signatures and the columns of the methods: line numbers,
+ * signature ids, hit counts and complexities. The index holds the file count, one
+ * fixed-width record per file (name offset, name length, block offset) sorted by name, and the UTF-8 names, so a
+ * file is found by binary search without reading the whole index.</p>
+ */
+public final class LineCoverageStore {
+
+    static final int MAGIC = 0x434C564C; // "CLVL"
+    static final int VERSION = 2;
+
+    private static final int INDEX_RECORD = 16;
+
+    /** Do not instantiate LineCoverageStore. */
+    private LineCoverageStore() {
+    }
+
+    /**
+     * Gets the line coverage store of the given build with a specific reportId.
+     */
+    public static File getFile(Run<?, ?> build, String reportId) {
+        return new File(build.getRootDir(),
+                (reportId == null || reportId.isEmpty()) ? "clover.lines" : "clover-" + reportId + ".lines");
+    }
+
+    /**
+     * Reads the line coverage of one file.
+     *
+     * @param name the name of the file, as in its {@link FileCoverage}
+     * @return the line coverage, <code>null</code> if the store has no lines for the file
+     * @throws IOException if the store cannot be read or is not of a supported version
+     */
+    public static FileLineCoverage read(File file, String name) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file + " is not a line coverage store");
+            }
+            final int version = buffer.getInt();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported line coverage store version " + version + " in " + file);
+            }
+            final long block = find(buffer, name.getBytes(StandardCharsets.UTF_8));
+            return block < 0 ? null : readBlock(buffer, Math.toIntExact(block), version);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException
+                 | NegativeArraySizeException | ArithmeticException e) {
+            throw new IOException("Truncated or corrupted line coverage store " + file, e);
+        }
+    }
+
+    private static long find(ByteBuffer buffer, byte[] name) {
+        final int index = Math.toIntExact(buffer.getLong(buffer.limit() - 8));
+        final int count = buffer.getInt(index);
+        final int records = index + 4;
+        final int names = records + count * INDEX_RECORD;
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int record = records + mid * INDEX_RECORD;
+            final int cmp = compare(buffer, names + buffer.getInt(record), buffer.getInt(record + 4), name);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return buffer.getLong(record + 8);
+            }
+        }
+        return -1;
+    }
+
+    private static int compare(ByteBuffer buffer, int offset, int length, byte[] name) {
+        for (int i = 0, n = Math.min(length, name.length); i < n; i++) {
+            final int cmp = Integer.compare(buffer.get(offset + i) & 0xff, name[i] & 0xff);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, name.length);
+    }
+
+    private static FileLineCoverage readBlock(ByteBuffer buffer, int offset, int version) {
+        buffer.position(offset);
+        final int count = buffer.getInt();
+        final int conds = buffer.getInt();
+        final int[] lines = new int[count];
+        final byte[] types = new byte[count];
+        final int[] hits = new int[count];
+        final int[] falseHits = new int[conds];
+        buffer.asIntBuffer().get(lines);
+        buffer.position(buffer.position() + count * 4);
+        buffer.get(types);
+        buffer.asIntBuffer().get(hits);
+        buffer.position(buffer.position() + count * 4);
+        buffer.asIntBuffer().get(falseHits);
+        buffer.position(buffer.position() + conds * 4);
+        final MethodCoverageTable methods = version < 2 ? MethodCoverageTable.EMPTY : readMethods(buffer);
+        return new FileLineCoverage(lines, types, hits, falseHits, methods);
+    }
+
+    private static MethodCoverageTable readMethods(ByteBuffer buffer) {
+        final int count = buffer.getInt();
+        final String[] strings = new String[buffer.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            final byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            strings[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        final int[][] columns = new int[4][count];
+        for (int[] column : columns) {
+            buffer.asIntBuffer().get(column);
+            buffer.position(buffer.position() + count * 4);
+        }
+        for (int signature : columns[1]) {
+            if (signature < 0 || signature >= strings.length) {
+                throw new IndexOutOfBoundsException("Signature " + signature + " not in the string table");
+            }
+        }
+        return new MethodCoverageTable(strings, columns[1], columns[0], columns[2], columns[3]);
+    }
+
+    /**
+     * Opens a writer of a store to the given stream. The stream is closed with the writer.
+     */
+    public static Writer write(OutputStream out) throws IOException {
+        return new Writer(out);
+    }
+
+    /**
+     * Writes a store file by file. The lines of a file may be added in any order.
+     */
+    public static final class Writer implements Closeable {
+
+        private final DataOutputStream out;
+        private final List<IndexEntry> index = new ArrayList<>();
+        private long offset;
+
+        private String name;
+        private int count;
+        private int[] lines = new int[256];
+        private byte[] types = new byte[256];
+        private int[] hits = new int[256];
+        private int[] falseHits = new int[256];
+
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+        private int methods;
+        private int[] methodLines = new int[16];
+        private int[] methodSignatures = new int[16];
+        private int[] methodHits = new int[16];
+        private int[] methodComplexity = new int[16];
+
+        Writer(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(new BufferedOutputStream(out));
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(VERSION);
+            this.offset = 8;
+        }
+
+        /**
+         * Starts the lines of the given file, ending the lines of the previous one.
+         */
+        public void startFile(String name) throws IOException {
+            endFile();
+            this.name = name;
+        }
+
+        /**
+         * Adds a line of the current file.
+         *
+         * @param type      the <code>type</code> attribute of the line: <code>stmt</code>, <code>method</code> or
+         *                  <code>cond</code>
+         * @param hits      the <code>count</code> of the line, for a conditional its <code>truecount</code>
+         * @param falseHits the <code>falsecount</code> of a conditional, ignored for other lines
+         */
+        public void addLine(int line, String type, int hits, int falseHits) {
+            if (count == lines.length) {
+                final int capacity = count * 2;
+                lines = Arrays.copyOf(lines, capacity);
+                types = Arrays.copyOf(types, capacity);
+                this.hits = Arrays.copyOf(this.hits, capacity);
+                this.falseHits = Arrays.copyOf(this.falseHits, capacity);
+            }
+            lines[count] = line;
+            types[count] = (byte) FileLineCoverage.Type.of(type).ordinal();
+            this.hits[count] = hits;
+            this.falseHits[count] = falseHits;
+            count++;
+        }
+
+        /**
+         * Adds a method of the current file, together with the line of its declaration.
+         *
+         * @param hits       the <code>count</code> of the method
+         * @param signature  the <code>signature</code> of the method
+         * @param complexity the <code>complexity</code> of the method
+         */
+        public void addMethod(int line, int hits, String signature, int complexity) {
+            addLine(line, "method", hits, 0);
+            if (methods == methodLines.length) {
+                final int capacity = methods * 2;
+                methodLines = Arrays.copyOf(methodLines, capacity);
+                methodSignatures = Arrays.copyOf(methodSignatures, capacity);
+                methodHits = Arrays.copyOf(methodHits, capacity);
+                methodComplexity = Arrays.copyOf(methodComplexity, capacity);
+            }
+            methodLines[methods] = line;
+            methodSignatures[methods] = strings.computeIfAbsent(signature == null ? "" : signature, k -> strings.size());
+            methodHits[methods] = hits;
+            methodComplexity[methods] = complexity;
+            methods++;
+        }
+
+        /**
+         * Ends the lines of the current file. Files without lines are not stored.
+         */
+        public void endFile() throws IOException {
+            if (name != null && count > 0) {
+                final int[] order = sortedOrder();
+                int conds = 0;
+                for (int i = 0; i < count; i++) {
+                    if (types[i] == FileLineCoverage.Type.COND.ordinal()) {
+                        conds++;
+                    }
+                }
+                index.add(new IndexEntry(name.getBytes(StandardCharsets.UTF_8), offset));
+                out.writeInt(count);
+                out.writeInt(conds);
+                for (int i : order) {
+                    out.writeInt(lines[i]);
+                }
+                for (int i : order) {
+                    out.writeByte(types[i]);
+                }
+                for (int i : order) {
+                    out.writeInt(hits[i]);
+                }
+                for (int i : order) {
+                    if (types[i] == FileLineCoverage.Type.COND.ordinal()) {
+                        out.writeInt(falseHits[i]);
+                    }
+                }
+                offset += 8 + count * 9L + conds * 4L;
+                offset += writeMethods();
+            }
+            name = null;
+            count = 0;
+            methods = 0;
+            strings.clear();
+        }
+
+        /**
+         * Writes the methods of the current file in the order they were added.
+         *
+         * @return the number of bytes written
+         */
+        private long writeMethods() throws IOException {
+            out.writeInt(methods);
+            out.writeInt(strings.size());
+            long written = 8 + methods * 16L;
+            for (String s : strings.keySet()) {
+                final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+                written += 4 + bytes.length;
+            }
+            for (int[] column : new int[][] {methodLines, methodSignatures, methodHits, methodComplexity}) {
+                for (int i = 0; i < methods; i++) {
+                    out.writeInt(column[i]);
+                }
+            }
+            return written;
+        }
+
+        /**
+         * Gets the order of the lines of the current file by line number and type. Clover writes them in that order
+         * already, so they are only sorted if they are not.
+         */
+        private int[] sortedOrder() {
+            final int[] order = new int[count];
+            boolean sorted = true;
+            for (int i = 0; i < count; i++) {
+                order[i] = i;
+                sorted &= i == 0 || compareLines(i - 1, i) <= 0;
+            }
+            if (!sorted) {
+                final Integer[] boxed = new Integer[count];
+                for (int i = 0; i < count; i++) {
+                    boxed[i] = i;
+                }
+                Arrays.sort(boxed, this::compareLines);
+                for (int i = 0; i < count; i++) {
+                    order[i] = boxed[i];
+                }
+            }
+            return order;
+        }
+
+        private int compareLines(int a, int b) {
+            final int cmp = Integer.compare(lines[a], lines[b]);
+            return cmp != 0 ? cmp : Byte.compare(types[a], types[b]);
+        }
+
+        /**
+         * Writes the index and closes the stream.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                endFile();
+                index.sort((a, b) -> {
+                    for (int i = 0, n = Math.min(a.name.length, b.name.length); i < n; i++) {
+                        final int cmp = Integer.compare(a.name[i] & 0xff, b.name[i] & 0xff);
+                        if (cmp != 0) {
+                            return cmp;
+                        }
+                    }
+                    return Integer.compare(a.name.length, b.name.length);
+                });
+                out.writeInt(index.size());
+                int nameOffset = 0;
+                for (IndexEntry e : index) {
+                    out.writeInt(nameOffset);
+                    out.writeInt(e.name.length);
+                    out.writeLong(e.offset);
+                    nameOffset += e.name.length;
+                }
+                for (IndexEntry e : index) {
+                    out.write(e.name);
+                }
+                out.writeLong(offset);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    private static final class IndexEntry {
+        private final byte[] name;
+        private final long offset;
+
+        IndexEntry(byte[] name, long offset) {
+            this.name = name;
+            this.offset = offset;
+        }
+    }
+}
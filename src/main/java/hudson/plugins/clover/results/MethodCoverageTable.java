@@ -0,0 +1,155 @@
+package hudson.plugins.clover.results;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Method coverage of a single file, as recorded by the <code>line type="method"</code> elements of clover.xml. The
+ * methods are held in columns: the signatures as ids into a string table of the file, and the line, hit count and
+ * cyclomatic complexity of each method as int arrays. Instances are read from a {@link LineCoverageStore} with the
+ * {@link FileLineCoverage} of the file and are immutable.
+ */
+public final class MethodCoverageTable {
+
+    static final MethodCoverageTable EMPTY = new MethodCoverageTable(new String[0], new int[0], new int[0], new int[0], new int[0]);
+
+    private final String[] strings;
+    private final int[] signatures;
+    private final int[] lines;
+    private final int[] hits;
+    private final int[] complexity;
+
+    /** Lazily built order of the methods by signature. */
+    private volatile int[] bySignature;
+
+    MethodCoverageTable(String[] strings, int[] signatures, int[] lines, int[] hits, int[] complexity) {
+        this.strings = strings;
+        this.signatures = signatures;
+        this.lines = lines;
+        this.hits = hits;
+        this.complexity = complexity;
+    }
+
+    public int size() {
+        return lines.length;
+    }
+
+    public String getSignature(int index) {
+        return strings[signatures[index]];
+    }
+
+    public int getLine(int index) {
+        return lines[index];
+    }
+
+    public int getHits(int index) {
+        return hits[index];
+    }
+
+    public int getComplexity(int index) {
+        return complexity[index];
+    }
+
+    public boolean isCovered(int index) {
+        return hits[index] > 0;
+    }
+
+    public Method getMethod(int index) {
+        return new Method(index);
+    }
+
+    /**
+     * Gets the index of the method with the given signature, the first one by line if the file declares the same
+     * signature more than once, e.g. in inner classes.
+     *
+     * @return the index, <code>-1</code> if there is no such method
+     */
+    public int indexOf(String signature) {
+        final int[] order = getBySignature();
+        int low = 0;
+        int high = order.length - 1;
+        int found = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int cmp = getSignature(order[mid]).compareTo(signature);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else {
+                if (cmp == 0) {
+                    found = order[mid];
+                }
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Gets the methods which were never entered, the most complex ones first.
+     */
+    public List<Method> getUncoveredByComplexity() {
+        final List<Method> uncovered = new ArrayList<>();
+        for (int i = 0; i < lines.length; i++) {
+            if (!isCovered(i)) {
+                uncovered.add(new Method(i));
+            }
+        }
+        uncovered.sort((a, b) -> a.getComplexity() != b.getComplexity()
+                ? Integer.compare(b.getComplexity(), a.getComplexity())
+                : Integer.compare(a.getLine(), b.getLine()));
+        return Collections.unmodifiableList(uncovered);
+    }
+
+    private int[] getBySignature() {
+        int[] order = bySignature;
+        if (order == null) {
+            final Integer[] boxed = new Integer[lines.length];
+            for (int i = 0; i < boxed.length; i++) {
+                boxed[i] = i;
+            }
+            Arrays.sort(boxed, (a, b) -> {
+                final int cmp = getSignature(a).compareTo(getSignature(b));
+                return cmp != 0 ? cmp : Integer.compare(lines[a], lines[b]);
+            });
+            order = new int[boxed.length];
+            for (int i = 0; i < boxed.length; i++) {
+                order[i] = boxed[i];
+            }
+            bySignature = order;
+        }
+        return order;
+    }
+
+    /**
+     * A row of the table.
+     */
+    public final class Method {
+        private final int index;
+
+        Method(int index) {
+            this.index = index;
+        }
+
+        public String getSignature() {
+            return MethodCoverageTable.this.getSignature(index);
+        }
+
+        public int getLine() {
+            return lines[index];
+        }
+
+        public int getHits() {
+            return hits[index];
+        }
+
+        public int getComplexity() {
+            return complexity[index];
+        }
+
+        public boolean isCovered() {
+            return MethodCoverageTable.this.isCovered(index);
+        }
+    }
+}
@@ -6,7 +6,11 @@ import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
  * Clover Coverage results for a specific package.
@@ -15,11 +19,19 @@ public class PackageCoverage extends AbstractFileAggregatedMetrics {
 
     private final List<FileCoverage> fileCoverages = new ArrayList<>();
 
+    /** Lazily built name indexes and directory tree of the files, dropped whenever a file is added. */
+    private transient volatile Map<String, FileCoverage> fileIndex;
+    private transient volatile Map<String, ClassCoverage> classIndex;
+    private transient volatile FilePathMapper fileTree;
+
     public List<FileCoverage> getChildren() {
         return getFileCoverages();
     }
 
     public boolean addFileCoverage(FileCoverage result) {
+        fileIndex = null;
+        classIndex = null;
+        fileTree = null;
         return fileCoverages.add(result);
     }
 
@@ -28,33 +40,48 @@ public class PackageCoverage extends AbstractFileAggregatedMetrics {
     }
 
     public FileCoverage findFileCoverage(String name) {
-        for (FileCoverage i : fileCoverages) {
-            if (name.equals(i.getName())) return i;
+        Map<String, FileCoverage> index = fileIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (FileCoverage i : fileCoverages) {
+                index.putIfAbsent(i.getName(), i);
+            }
+            fileIndex = index;
         }
-        return null;
+        return index.get(name);
     }
 
     public ClassCoverage findClassCoverage(String name) {
-        for (FileCoverage i : fileCoverages) {
-            ClassCoverage j = i.findClassCoverage(name);
-            if (j != null) return j;
+        Map<String, ClassCoverage> index = classIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (FileCoverage i : fileCoverages) {
+                for (ClassCoverage j : i.getClassCoverages()) {
+                    index.putIfAbsent(j.getName(), j);
+                }
+            }
+            classIndex = index;
         }
-        return null;
+        return index.get(name);
     }
 
     public Object getDynamic(String token, StaplerRequest2 req, StaplerResponse2 rsp) {
-        boolean isPath = false;
-        for (FileCoverage i : fileCoverages) {
-            if (i.getName().equals(token)) return i;
-            if (i.getName().startsWith(token)) {
-                isPath = true;
-                break;
+        return getFileTree().getDynamic(token, req, rsp);
+    }
+
+    /**
+     * Gets the directory tree of the files in this package, built on first use.
+     */
+    public FilePathMapper getFileTree() {
+        FilePathMapper tree = fileTree;
+        if (tree == null) {
+            tree = new FilePathMapper("");
+            for (FileCoverage i : fileCoverages) {
+                tree.add(i);
             }
+            fileTree = tree;
         }
-        if (isPath) {
-            return new FilePathMapper(token + '/');
-        }
-        return null;
+        return tree;
     }
 
     public AbstractCloverMetrics getPreviousResult() {
@@ -65,6 +92,12 @@ public class PackageCoverage extends AbstractFileAggregatedMetrics {
         return action.findPackageCoverage(getName());
     }
 
+    void setReportId(String reportId) {
+        for (FileCoverage fileCoverage : fileCoverages) {
+            fileCoverage.setReportId(reportId);
+        }
+    }
+
     public void setOwner(Run<?, ?> owner) {
         super.setOwner(owner);    //To change body of overridden methods use File | Settings | File Templates.
         for (FileCoverage fileCoverage : fileCoverages) {
@@ -72,28 +105,70 @@ public class PackageCoverage extends AbstractFileAggregatedMetrics {
         }
     }
 
+    /**
+     * A directory in the file tree of the package, resolving the URL path segments below it to either a
+     * sub-directory or a {@link FileCoverage}.
+     */
     public class FilePathMapper {
         private final String pathSoFar;
+        private final Map<String, FilePathMapper> directories = new TreeMap<>();
+        private final Map<String, FileCoverage> files = new TreeMap<>();
 
-        public FilePathMapper(String pathSoFar) {
+        FilePathMapper(String pathSoFar) {
             this.pathSoFar = pathSoFar;
         }
 
-        public Object getDynamic(String token, StaplerRequest2 req, StaplerResponse2 rsp) {
-            final String testPath = pathSoFar + token;
-            boolean isPath = false;
-            for (FileCoverage i : fileCoverages) {
-                if (i.getName().equals(testPath)) return i;
-                if (i.getName().startsWith(testPath)) {
-                    isPath = true;
-                    break;
+        private void add(FileCoverage file) {
+            final String name = file.getName();
+            FilePathMapper dir = this;
+            int start = 0;
+            int slash;
+            while ((slash = name.indexOf('/', start)) >= 0) {
+                if (slash > start) {
+                    final String segment = name.substring(start, slash);
+                    final String path = name.substring(0, slash + 1);
+                    dir = dir.directories.computeIfAbsent(segment, k -> new FilePathMapper(path));
                 }
+                start = slash + 1;
             }
-            if (isPath) {
-                return new FilePathMapper(testPath + '/');
-            }
-            return null;
+            dir.files.putIfAbsent(name.substring(start), file);
+        }
+
+        public Object getDynamic(String token, StaplerRequest2 req, StaplerResponse2 rsp) {
+            final FileCoverage file = files.get(token);
+            if (file != null) return file;
+            return directories.get(token);
+        }
+
+        /**
+         * Gets the path of this directory relative to the workspace, ending with a slash.
+         */
+        public String getPath() {
+            return pathSoFar;
         }
 
+        public PackageCoverage getPackage() {
+            return PackageCoverage.this;
+        }
+
+        public Run<?, ?> getOwner() {
+            return PackageCoverage.this.getOwner();
+        }
+
+        /**
+         * Gets the sub-directories of this directory, sorted by name.
+         */
+        public Map<String, FilePathMapper> getDirectories() {
+            return Collections.unmodifiableMap(directories);
+        }
+
+        /**
+         * Gets the files directly in this directory, sorted by name.
+         */
+        public Map<String, FileCoverage> getFiles() {
+            return Collections.unmodifiableMap(files);
+        }
     }
+
+    private static final long serialVersionUID = 1L;
 }
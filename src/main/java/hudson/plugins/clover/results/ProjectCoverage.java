@@ -2,11 +2,21 @@ package hudson.plugins.clover.results;
 
 import hudson.model.Run;
 import hudson.plugins.clover.CloverBuildAction;
+import hudson.plugins.clover.graphs.CoverageTrendStore;
+import hudson.util.Graph;
 import org.kohsuke.stapler.StaplerRequest2;
 import org.kohsuke.stapler.StaplerResponse2;
 
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * Clover Coverage results for the entire project.
@@ -14,8 +24,18 @@ import java.util.List;
 public class ProjectCoverage extends AbstractPackageAggregatedMetrics {
 
     private final List<PackageCoverage> packageCoverages = new ArrayList<>();
+    private transient String reportId;
+
+    /** Lazily built lookup structures over {@link #packageCoverages}, dropped whenever a package is added. */
+    private transient volatile Map<String, PackageCoverage> packageIndex;
+    private transient volatile Map<String, FileCoverage> fileIndex;
+    private transient volatile PackageTrie packageTrie;
+    private transient volatile SoftReference<CoverageDelta> delta;
 
     public boolean addPackageCoverage(PackageCoverage result) {
+        packageIndex = null;
+        fileIndex = null;
+        packageTrie = null;
         return packageCoverages.add(result);
     }
 
@@ -28,31 +48,77 @@ public class ProjectCoverage extends AbstractPackageAggregatedMetrics {
     }
 
     public PackageCoverage findPackageCoverage(String name) {
-        for (PackageCoverage i : packageCoverages) {
-            if (name.equals(i.getName())) return i;
+        Map<String, PackageCoverage> index = packageIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (PackageCoverage i : packageCoverages) {
+                index.putIfAbsent(i.getName(), i);
+            }
+            packageIndex = index;
         }
-        return null;
+        return index.get(name);
     }
 
     public FileCoverage findFileCoverage(String name) {
-        for (PackageCoverage i : packageCoverages) {
-            FileCoverage j = i.findFileCoverage(name);
-            if (j != null) return j;
+        Map<String, FileCoverage> index = fileIndex;
+        if (index == null) {
+            index = new HashMap<>();
+            for (PackageCoverage i : packageCoverages) {
+                for (FileCoverage j : i.getFileCoverages()) {
+                    index.putIfAbsent(j.getName(), j);
+                }
+            }
+            fileIndex = index;
         }
-        return null;
+        return index.get(name);
     }
 
+    /**
+     * Finds a class by its fully qualified name. Only the packages whose name is a dotted prefix of the class name
+     * are searched; they are located by walking the package name trie one name segment at a time.
+     */
     public ClassCoverage findClassCoverage(String name) {
-        for (PackageCoverage i : packageCoverages) {
-            final String prefix = i.getName() + '.';
-            if (name.startsWith(prefix)) {
+        PackageTrie trie = packageTrie;
+        if (trie == null) {
+            trie = new PackageTrie();
+            for (PackageCoverage i : packageCoverages) {
+                trie.add(i);
+            }
+            packageTrie = trie;
+        }
+        PackageTrie node = trie;
+        int start = 0;
+        int dot;
+        // the last segment is the simple class name, so only the segments before a dot can name a package
+        while ((dot = name.indexOf('.', start)) >= 0) {
+            node = node.children.get(name.substring(start, dot));
+            if (node == null) {
+                return null;
+            }
+            for (PackageCoverage i : node.packages) {
                 ClassCoverage j = i.findClassCoverage(name);
                 if (j != null) return j;
             }
+            start = dot + 1;
         }
         return null;
     }
 
+    /**
+     * Gets the number of nodes (project, packages, files and classes) in this tree, as an estimate of its size in
+     * memory.
+     */
+    public int getNodeCount() {
+        int count = 1 + packageCoverages.size();
+        for (PackageCoverage p : packageCoverages) {
+            count += p.getFileCoverages().size();
+            for (FileCoverage f : p.getFileCoverages()) {
+                count += f.getClassCoverages().size();
+            }
+        }
+        return count;
+    }
+
     public PackageCoverage getDynamic(String token, StaplerRequest2 req, StaplerResponse2 rsp) {
         return findPackageCoverage(token);
     }
@@ -65,6 +131,84 @@ public class ProjectCoverage extends AbstractPackageAggregatedMetrics {
         return action.getResult();
     }
 
+    /**
+     * Gets the reportId of the {@link CloverBuildAction} this result belongs to.
+     *
+     * @return the reportId, <code>null</code> if the result is not attached to an action
+     */
+    public String getReportId() {
+        return reportId;
+    }
+
+    public void setReportId(String reportId) {
+        this.reportId = reportId;
+        delta = null;
+        for (PackageCoverage p : packageCoverages) {
+            p.setReportId(reportId);
+        }
+    }
+
+    /**
+     * Gets the classes and files ranked when the report was published, see {@link CoverageRanking}.
+     *
+     * @return the rankings, <code>null</code> if none were computed
+     */
+    public CoverageRanking getRanking() {
+        final Run<?, ?> owner = getOwner();
+        if (owner == null) {
+            return null;
+        }
+        for (CloverBuildAction action : owner.getActions(CloverBuildAction.class)) {
+            if (Objects.equals(action.getReportId(), reportId)) {
+                final CoverageRanking ranking = action.getRanking();
+                if (ranking != null) {
+                    ranking.setOwner(owner);
+                }
+                return ranking;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets what changed since the previous build, as recorded when the report was published, see
+     * {@link CoverageDelta}.
+     *
+     * @return the delta, <code>null</code> if none was recorded
+     */
+    public CoverageDelta getDelta() {
+        final Run<?, ?> owner = getOwner();
+        if (owner == null) {
+            return null;
+        }
+        final SoftReference<CoverageDelta> ref = delta;
+        CoverageDelta d = ref == null ? null : ref.get();
+        if (d == null) {
+            final File file = CoverageDelta.getFile(owner, reportId);
+            if (!file.isFile()) {
+                return null;
+            }
+            try {
+                d = CoverageDelta.read(file);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read the coverage delta from " + file, e);
+                return null;
+            }
+            delta = new SoftReference<>(d);
+        }
+        d.setOwner(owner);
+        return d;
+    }
+
+    @Override
+    public Graph getTrendGraph() {
+        final Run<?, ?> owner = getOwner();
+        if (owner != null && reportId != null && CoverageTrendStore.exists(owner.getParent(), reportId)) {
+            return CoverageTrendStore.createGraph(owner, reportId);
+        }
+        return super.getTrendGraph();
+    }
+
     @Override
     public void setOwner(Run<?, ?> owner) {
         super.setOwner(owner);    //To change body of overridden methods use File | Settings | File Templates.
@@ -72,4 +216,24 @@ public class ProjectCoverage extends AbstractPackageAggregatedMetrics {
             p.setOwner(owner);
         }
     }
+
+    /**
+     * Trie of package names keyed by their dot separated segments.
+     */
+    private static final class PackageTrie {
+        private final Map<String, PackageTrie> children = new HashMap<>();
+        private final List<PackageCoverage> packages = new ArrayList<>(1);
+
+        void add(PackageCoverage p) {
+            final String name = p.getName() == null ? "" : p.getName();
+            PackageTrie node = this;
+            for (String segment : name.split("\\.", -1)) {
+                node = node.children.computeIfAbsent(segment, k -> new PackageTrie());
+            }
+            node.packages.add(p);
+        }
+    }
+
+    private static final Logger LOGGER = Logger.getLogger(ProjectCoverage.class.getName());
+    private static final long serialVersionUID = 1L;
 }
@@ -0,0 +1,102 @@
+package hudson.plugins.clover.results;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static hudson.plugins.clover.results.AbstractClassAggregatedMetrics.addClassMetrics;
+import static hudson.plugins.clover.results.AbstractClassAggregatedMetrics.maxClassMetrics;
+import static hudson.plugins.clover.results.AbstractCloverMetrics.maxMetrics;
+
+/**
+ * Merges the coverage of several modules into one tree. Packages, files and classes with the same name are merged
+ * into one node. A file or class found in more than one report, e.g. a source compiled into two modules, gets the
+ * highest metrics any single report has for it, so shared sources are not counted twice; the package and project
+ * metrics are the sums of the merged files.
+ * <p>
+ * The nodes are collected in maps local to the merge and only attached to the tree at the end, so no lookup index of
+ * the tree is rebuilt while merging.
+ */
+public final class ProjectCoverageMerger {
+
+    /** Do not instantiate ProjectCoverageMerger. */
+    private ProjectCoverageMerger() {
+    }
+
+    public static ProjectCoverage merge(List<ProjectCoverage> projects) {
+        final Map<String, PackageMerge> packages = new LinkedHashMap<>();
+        final ProjectCoverage merged = new ProjectCoverage();
+        for (ProjectCoverage project : projects) {
+            if (merged.getName() == null) {
+                merged.setName(project.getName());
+            }
+            for (PackageCoverage p : project.getPackageCoverages()) {
+                packages.computeIfAbsent(p.getName(), PackageMerge::new).add(p);
+            }
+        }
+        int files = 0;
+        for (PackageMerge p : packages.values()) {
+            final PackageCoverage packageCoverage = p.toPackageCoverage();
+            merged.addPackageCoverage(packageCoverage);
+            addClassMetrics(merged, packageCoverage);
+            files += packageCoverage.getFiles();
+        }
+        merged.setPackages(packages.size());
+        merged.setFiles(files);
+        return merged;
+    }
+
+    private static final class PackageMerge {
+        private final String name;
+        private final Map<String, FileMerge> files = new LinkedHashMap<>();
+
+        PackageMerge(String name) {
+            this.name = name;
+        }
+
+        void add(PackageCoverage source) {
+            for (FileCoverage f : source.getFileCoverages()) {
+                files.computeIfAbsent(f.getName(), FileMerge::new).add(f);
+            }
+        }
+
+        PackageCoverage toPackageCoverage() {
+            final PackageCoverage packageCoverage = new PackageCoverage();
+            packageCoverage.setName(name);
+            for (FileMerge f : files.values()) {
+                final FileCoverage fileCoverage = f.toFileCoverage();
+                packageCoverage.addFileCoverage(fileCoverage);
+                addClassMetrics(packageCoverage, fileCoverage);
+            }
+            packageCoverage.setFiles(files.size());
+            return packageCoverage;
+        }
+    }
+
+    private static final class FileMerge {
+        private final FileCoverage file = new FileCoverage();
+        private final Map<String, ClassCoverage> classes = new LinkedHashMap<>();
+
+        FileMerge(String name) {
+            file.setName(name);
+        }
+
+        void add(FileCoverage source) {
+            maxClassMetrics(file, source);
+            for (ClassCoverage c : source.getClassCoverages()) {
+                maxMetrics(classes.computeIfAbsent(c.getName(), n -> {
+                    final ClassCoverage cls = new ClassCoverage();
+                    cls.setName(n);
+                    return cls;
+                }), c);
+            }
+        }
+
+        FileCoverage toFileCoverage() {
+            for (ClassCoverage c : classes.values()) {
+                file.addClassCoverage(c);
+            }
+            return file;
+        }
+    }
+}
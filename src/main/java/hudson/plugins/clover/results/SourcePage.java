@@ -0,0 +1,166 @@
+package hudson.plugins.clover.results;
+
+import hudson.model.Run;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * One page of the source of a file together with its line coverage. The sources of a report are archived as one zip
+ * next to the coverage data of the build; a page is read by streaming the entry of the file up to the end of the
+ * page, so only the lines of that page are ever held in memory, however large the file.
+ */
+public final class SourcePage {
+
+    /** The number of lines on a page. */
+    public static final int SIZE = Integer.getInteger(SourcePage.class.getName() + ".size", 1000);
+
+    private final int page;
+    private final List<Line> lines;
+    private final boolean hasNext;
+
+    private SourcePage(int page, List<Line> lines, boolean hasNext) {
+        this.page = page;
+        this.lines = lines;
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Gets the source archive of the given build with a specific reportId.
+     */
+    public static File getArchive(Run<?, ?> build, String reportId) {
+        return new File(build.getRootDir(),
+                (reportId == null || reportId.isEmpty()) ? "clover-sources.zip" : "clover-" + reportId + "-sources.zip");
+    }
+
+    /**
+     * Reads a page of the source of a file.
+     *
+     * @param archive  the source archive
+     * @param name     the name of the file, as in its {@link FileCoverage}
+     * @param coverage the line coverage of the file, may be <code>null</code>
+     * @param page     the page, starting at <code>0</code>
+     * @return the page, <code>null</code> if the source of the file was not archived
+     */
+    public static SourcePage read(File archive, String name, FileLineCoverage coverage, int page) throws IOException {
+        try (ZipFile zip = new ZipFile(archive)) {
+            final ZipEntry entry = zip.getEntry(name);
+            if (entry == null) {
+                return null;
+            }
+            final int first = page * SIZE + 1;
+            final List<Line> lines = new ArrayList<>(Math.min(SIZE, 256));
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(zip.getInputStream(entry), StandardCharsets.UTF_8))) {
+                int number = 0;
+                String text;
+                while ((text = reader.readLine()) != null) {
+                    number++;
+                    if (number < first) {
+                        continue;
+                    }
+                    if (number >= first + SIZE) {
+                        return new SourcePage(page, lines, true);
+                    }
+                    lines.add(new Line(number, text, coverage));
+                }
+            }
+            return new SourcePage(page, lines, false);
+        }
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public List<Line> getLines() {
+        return Collections.unmodifiableList(lines);
+    }
+
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    /**
+     * A source line with the coverage of all records of the line.
+     */
+    public static final class Line {
+        private final int number;
+        private final String text;
+        private int hits = -1;
+        private int trueHits = -1;
+        private int falseHits = -1;
+        private boolean uncovered;
+
+        Line(int number, String text, FileLineCoverage coverage) {
+            this.number = number;
+            this.text = text;
+            final int first = coverage == null ? -1 : coverage.indexOf(number);
+            for (int i = first; i >= 0 && i < coverage.size() && coverage.getLine(i) == number; i++) {
+                if (coverage.getType(i) == FileLineCoverage.Type.COND) {
+                    trueHits = Math.max(trueHits, 0) + coverage.getHits(i);
+                    falseHits = Math.max(falseHits, 0) + coverage.getFalseHits(i);
+                } else {
+                    hits = Math.max(hits, coverage.getHits(i));
+                }
+                uncovered |= !coverage.isCovered(i);
+            }
+        }
+
+        public int getNumber() {
+            return number;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        /**
+         * Gets how often the line was executed, <code>-1</code> if it holds no statement or method.
+         */
+        public int getHits() {
+            return hits;
+        }
+
+        /**
+         * Gets how often the conditionals of the line evaluated to <code>true</code>, <code>-1</code> if it holds
+         * none.
+         */
+        public int getTrueHits() {
+            return trueHits;
+        }
+
+        /**
+         * Gets how often the conditionals of the line evaluated to <code>false</code>, <code>-1</code> if it holds
+         * none.
+         */
+        public int getFalseHits() {
+            return falseHits;
+        }
+
+        /**
+         * Gets the coverage of the line as a CSS class: <code>covered</code>, <code>partial</code> if only some
+         * branches of a conditional were taken, <code>uncovered</code>, or empty if no coverage was recorded.
+         */
+        public String getStatus() {
+            if (hits < 0 && trueHits < 0) {
+                return "";
+            }
+            if (!uncovered) {
+                return "covered";
+            }
+            return hits > 0 || trueHits > 0 || falseHits > 0 ? "partial" : "uncovered";
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package hudson.plugins.clover.slave;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * Locates the Clover report below the workspace in a single call: the canonical workspace path, the report
+ * directory, the XML report (with its size) and the directory holding the HTML report's index.html.
+ *
+ * <p>Each file is looked for in its start directory first and then in the directories below it matching the
+ * search pattern, a glob relative to the start directory. The default pattern <code>*</code> searches the
+ * immediate sub-directories only; <code>**</code> searches at any depth. Shallower matches win, siblings are
+ * searched in name order. Symbolic links to directories are not searched.</p>
+ */
+public class DiscoverReportCallable extends MasterToSlaveFileCallable<DiscoverReportCallable.ReportLocation> {
+
+    public static final String DEFAULT_SEARCH_PATTERN = "*";
+
+    private final String reportDir;
+    private final String xmlFileName;
+    private final String searchPattern;
+
+    public DiscoverReportCallable(String reportDir, String xmlFileName, String searchPattern) {
+        this.reportDir = reportDir;
+        this.xmlFileName = xmlFileName;
+        this.searchPattern = searchPattern == null || searchPattern.trim().isEmpty()
+                ? DEFAULT_SEARCH_PATTERN : searchPattern.trim();
+    }
+
+    public ReportLocation invoke(File workspace, VirtualChannel virtualChannel) throws IOException {
+        final ReportLocation location = new ReportLocation();
+        try {
+            location.workspacePath = workspace.getCanonicalPath();
+        } catch (IOException e) {
+            location.workspacePath = workspace.getAbsolutePath();
+        }
+        final File dir = find(workspace, reportDir);
+        if (dir == null || !dir.isDirectory()) {
+            return location;
+        }
+        location.reportDir = dir.getAbsolutePath();
+
+        final File xml = find(dir, xmlFileName);
+        if (xml != null && xml.isFile()) {
+            location.xmlFile = xml.getAbsolutePath();
+            location.xmlSize = xml.length();
+        }
+        final File index = find(dir, "index.html");
+        if (index != null && index.isFile()) {
+            location.htmlDir = index.getParentFile().getAbsolutePath();
+        }
+        return location;
+    }
+
+    /**
+     * Finds the given relative path in the start directory or the directories below it matching the pattern.
+     *
+     * @return the file, <code>null</code> if it does not exist anywhere
+     */
+    private File find(File start, String name) {
+        if (new File(name).isAbsolute()) {
+            return new File(name);
+        }
+        final File direct = new File(start, name);
+        if (direct.exists()) {
+            return direct;
+        }
+        final Path root = start.toPath();
+        final PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + searchPattern);
+        final int maxDepth = searchPattern.contains("**")
+                ? Integer.MAX_VALUE : searchPattern.split("/").length;
+
+        // breadth first, so that shallower matches win
+        final Deque<File> queue = new ArrayDeque<>();
+        queue.add(start);
+        while (!queue.isEmpty()) {
+            final File dir = queue.poll();
+            final File[] children = dir.listFiles(File::isDirectory);
+            if (children == null) {
+                continue;
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                if (Files.isSymbolicLink(child.toPath())) {
+                    // may lead out of the start directory, or into a cycle
+                    continue;
+                }
+                final Path relative = root.relativize(child.toPath());
+                if (matcher.matches(relative)) {
+                    final File candidate = new File(child, name);
+                    if (candidate.exists()) {
+                        return candidate;
+                    }
+                }
+                if (relative.getNameCount() < maxDepth) {
+                    queue.add(child);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Absolute paths (on the node running the callable) of the parts of a Clover report; <code>null</code> for the
+     * parts which were not found.
+     */
+    public static final class ReportLocation implements Serializable {
+        private String workspacePath;
+        private String reportDir;
+        private String xmlFile;
+        private long xmlSize;
+        private String htmlDir;
+
+        /**
+         * Gets the canonical path of the workspace, used to trim the file names of the report.
+         */
+        public String getWorkspacePath() {
+            return workspacePath;
+        }
+
+        public String getReportDir() {
+            return reportDir;
+        }
+
+        public String getXmlFile() {
+            return xmlFile;
+        }
+
+        public long getXmlSize() {
+            return xmlSize;
+        }
+
+        public String getHtmlDir() {
+            return htmlDir;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
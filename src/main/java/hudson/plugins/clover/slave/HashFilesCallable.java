@@ -0,0 +1,79 @@
+package hudson.plugins.clover.slave;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Computes the SHA-256 of every file below a directory, keyed by its slash separated path relative to that
+ * directory. Symbolic links are not followed.
+ */
+public class HashFilesCallable extends MasterToSlaveFileCallable<TreeMap<String, String>> {
+
+    public TreeMap<String, String> invoke(File dir, VirtualChannel virtualChannel) throws IOException {
+        final Path root = dir.toPath();
+        final List<Path> files;
+        try (Stream<Path> walk = Files.walk(root)) {
+            // symbolic links are skipped, as they may point outside of the directory
+            files = walk.filter(p -> Files.isRegularFile(p, LinkOption.NOFOLLOW_LINKS)).collect(Collectors.toList());
+        }
+        final MessageDigest digest = newDigest();
+        final byte[] buffer = new byte[64 * 1024];
+        final TreeMap<String, String> hashes = new TreeMap<>();
+        for (Path file : files) {
+            hashes.put(root.relativize(file).toString().replace(File.separatorChar, '/'), hash(file, digest, buffer));
+        }
+        return hashes;
+    }
+
+    /**
+     * Computes the SHA-256 of one file.
+     *
+     * @return the hash, as lower case hex
+     */
+    public static String hash(Path file) throws IOException {
+        return hash(file, newDigest(), new byte[64 * 1024]);
+    }
+
+    private static String hash(Path file, MessageDigest digest, byte[] buffer) throws IOException {
+        digest.reset();
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, n);
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static String toHex(byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,54 @@
+package hudson.plugins.clover.slave;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Moves a freshly transferred jar into its place in a tool cache after verifying its SHA-256, and records the
+ * checksum for {@link ProbeCachedJarCallable}. Builds running concurrently on the same node may install the same jar;
+ * each transfers to its own temporary file and the moves replace each other atomically.
+ */
+public class InstallCachedJarCallable extends MasterToSlaveFileCallable<Void> {
+
+    private final String target;
+    private final String sha256;
+
+    /**
+     * @param target the path of the jar in the cache, on the same node as the temporary file
+     * @param sha256 the expected checksum
+     */
+    public InstallCachedJarCallable(String target, String sha256) {
+        this.target = target;
+        this.sha256 = sha256;
+    }
+
+    public Void invoke(File tmp, VirtualChannel virtualChannel) throws IOException {
+        final String actual = HashFilesCallable.hash(tmp.toPath());
+        if (!sha256.equals(actual)) {
+            Files.deleteIfExists(tmp.toPath());
+            throw new IOException("Checksum mismatch for " + tmp + ": expected " + sha256 + " but was " + actual);
+        }
+        final Path jar = new File(target).toPath();
+        try {
+            Files.move(tmp.toPath(), jar, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp.toPath(), jar, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.write(getChecksumFile(jar.toFile()).toPath(), sha256.getBytes(StandardCharsets.US_ASCII));
+        return null;
+    }
+
+    static File getChecksumFile(File jar) {
+        return new File(jar.getParentFile(), jar.getName() + ".sha256");
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,41 @@
+package hudson.plugins.clover.slave;
+
+import hudson.plugins.clover.CloverCoverageParser;
+import hudson.plugins.clover.results.ProjectCoverage;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Parses a clover.xml file where it lives (usually on the agent) and trims the workspace path from the file names,
+ * so that only the compact coverage tree has to be sent back to the controller. If a stream is given, usually a
+ * {@link hudson.remoting.RemoteOutputStream} of the controller, the line coverage read in the same pass is written to
+ * it as a {@link hudson.plugins.clover.results.LineCoverageStore}.
+ */
+public class ParseCoverageFileCallable extends MasterToSlaveFileCallable<ProjectCoverage> {
+
+    private final String pathPrefix;
+    private final CloverCoverageParser.Mode mode;
+    private final OutputStream lines;
+
+    /**
+     * @param lines the stream to write the line coverage to, <code>null</code> to skip the lines
+     */
+    public ParseCoverageFileCallable(String pathPrefix, CloverCoverageParser.Mode mode, OutputStream lines) {
+        this.pathPrefix = pathPrefix;
+        this.mode = mode;
+        this.lines = lines;
+    }
+
+    public ProjectCoverage invoke(File file, VirtualChannel virtualChannel) throws IOException {
+        if (lines != null) {
+            return CloverCoverageParser.parse(file, pathPrefix, mode, lines);
+        }
+        return CloverCoverageParser.parse(file, pathPrefix, mode);
+    }
+
+    private static final long serialVersionUID = 1L;
+}
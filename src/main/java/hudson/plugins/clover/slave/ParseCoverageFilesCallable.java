@@ -0,0 +1,103 @@
+package hudson.plugins.clover.slave;
+
+import hudson.Util;
+import hudson.plugins.clover.CloverCoverageParser;
+import hudson.plugins.clover.results.ProjectCoverage;
+import hudson.plugins.clover.results.ProjectCoverageMerger;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Parses all clover.xml files below the workspace matching an Ant style pattern (usually one per module of a
+ * multi-module build) in parallel where they live, and merges them into one coverage tree.
+ */
+public class ParseCoverageFilesCallable extends MasterToSlaveFileCallable<ParseCoverageFilesCallable.MergedCoverage> {
+
+    private final String includes;
+    private final CloverCoverageParser.Mode mode;
+
+    public ParseCoverageFilesCallable(String includes, CloverCoverageParser.Mode mode) {
+        this.includes = includes;
+        this.mode = mode;
+    }
+
+    public MergedCoverage invoke(File workspace, VirtualChannel virtualChannel)
+            throws IOException, InterruptedException {
+        final MergedCoverage merged = new MergedCoverage();
+        merged.workspacePath = workspace.getCanonicalPath();
+        final String pathPrefix = merged.workspacePath.endsWith(File.separator)
+                ? merged.workspacePath : merged.workspacePath + File.separator;
+
+        final String[] files = Util.createFileSet(workspace, includes).getDirectoryScanner().getIncludedFiles();
+        Arrays.sort(files);
+        merged.files = Arrays.asList(files);
+        if (files.length == 0) {
+            return merged;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(files.length, Runtime.getRuntime().availableProcessors()));
+        try {
+            final List<Future<ProjectCoverage>> parsed = new ArrayList<>();
+            for (String file : files) {
+                final File xml = new File(workspace, file);
+                parsed.add(executor.submit((Callable<ProjectCoverage>) () -> CloverCoverageParser.parse(xml, pathPrefix, mode)));
+            }
+            final List<ProjectCoverage> projects = new ArrayList<>();
+            for (int i = 0; i < files.length; i++) {
+                try {
+                    projects.add(parsed.get(i).get());
+                } catch (ExecutionException e) {
+                    throw new IOException("Cannot parse coverage results from " + files[i], e.getCause());
+                }
+            }
+            merged.coverage = ProjectCoverageMerger.merge(projects);
+        } finally {
+            executor.shutdownNow();
+        }
+        return merged;
+    }
+
+    /**
+     * The merged coverage together with the reports it was merged from.
+     */
+    public static final class MergedCoverage implements Serializable {
+        private String workspacePath;
+        private List<String> files;
+        private ProjectCoverage coverage;
+
+        public String getWorkspacePath() {
+            return workspacePath;
+        }
+
+        /**
+         * Gets the matched reports, relative to the workspace.
+         */
+        public List<String> getFiles() {
+            return files;
+        }
+
+        /**
+         * Gets the merged coverage, <code>null</code> if no report matched.
+         */
+        public ProjectCoverage getCoverage() {
+            return coverage;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
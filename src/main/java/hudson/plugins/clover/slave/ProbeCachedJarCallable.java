@@ -0,0 +1,33 @@
+package hudson.plugins.clover.slave;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * Checks whether a jar has already been provisioned to a tool cache. The jar is only trusted if it has the expected
+ * size and {@link InstallCachedJarCallable} recorded its verified SHA-256 next to it, so the probe does not need to
+ * read the jar itself.
+ */
+public class ProbeCachedJarCallable extends MasterToSlaveFileCallable<Boolean> {
+
+    private final String sha256;
+    private final long length;
+
+    public ProbeCachedJarCallable(String sha256, long length) {
+        this.sha256 = sha256;
+        this.length = length;
+    }
+
+    public Boolean invoke(File jar, VirtualChannel virtualChannel) throws IOException {
+        final File checksum = InstallCachedJarCallable.getChecksumFile(jar);
+        return jar.isFile() && jar.length() == length && checksum.isFile()
+                && sha256.equals(new String(Files.readAllBytes(checksum.toPath()), StandardCharsets.US_ASCII).trim());
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,74 @@
+package hudson.plugins.clover.slave;
+
+import hudson.Util;
+import hudson.plugins.clover.LineCoverageUnion;
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds the {@link LineCoverageUnion} of all clover.xml files below the workspace matching an Ant style pattern
+ * (usually the reports of the shards of a test run, unstashed into the workspace) where they live. The reports are
+ * streamed one after the other, so the agent never holds more than the union.
+ */
+public class UnionCoverageFilesCallable extends MasterToSlaveFileCallable<UnionCoverageFilesCallable.Union> {
+
+    private final String includes;
+
+    public UnionCoverageFilesCallable(String includes) {
+        this.includes = includes;
+    }
+
+    public Union invoke(File workspace, VirtualChannel virtualChannel) throws IOException {
+        final Union result = new Union();
+        result.workspacePath = workspace.getCanonicalPath();
+        final String[] files = Util.createFileSet(workspace, includes).getDirectoryScanner().getIncludedFiles();
+        Arrays.sort(files);
+        result.files = Arrays.asList(files);
+        result.union = new LineCoverageUnion();
+        for (String file : files) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(new File(workspace, file)))) {
+                result.union.add(in);
+            } catch (IOException e) {
+                throw new IOException("Cannot parse coverage results from " + file, e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The union together with the reports it was built from.
+     */
+    public static final class Union implements Serializable {
+        private String workspacePath;
+        private List<String> files;
+        private LineCoverageUnion union;
+
+        public String getWorkspacePath() {
+            return workspacePath;
+        }
+
+        /**
+         * Gets the matched reports, relative to the workspace.
+         */
+        public List<String> getFiles() {
+            return files;
+        }
+
+        public LineCoverageUnion getUnion() {
+            return union;
+        }
+
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,60 @@
+package hudson.plugins.clover.slave;
+
+import hudson.remoting.VirtualChannel;
+import jenkins.MasterToSlaveFileCallable;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes the given files below a directory as a zip to a stream, usually a
+ * {@link hudson.remoting.RemoteOutputStream} of the controller. Paths leaving the directory, also through symbolic
+ * links, are ignored.
+ */
+public class ZipFilesCallable extends MasterToSlaveFileCallable<Integer> {
+
+    private final List<String> paths;
+    private final OutputStream out;
+
+    public ZipFilesCallable(Collection<String> paths, OutputStream out) {
+        this.paths = new ArrayList<>(paths);
+        this.out = out;
+    }
+
+    public Integer invoke(File dir, VirtualChannel virtualChannel) throws IOException {
+        final Path root = dir.toPath().toRealPath();
+        int count = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out))) {
+            for (String path : paths) {
+                final Path file;
+                try {
+                    // resolves symbolic links, so a link cannot pull in a file from elsewhere
+                    file = root.resolve(path).toRealPath();
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (!file.startsWith(root) || !Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS)) {
+                    continue;
+                }
+                zip.putNextEntry(new ZipEntry(path));
+                Files.copy(file, zip);
+                zip.closeEntry();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final long serialVersionUID = 1L;
+}
@@ -18,10 +18,14 @@ import hudson.model.FreeStyleBuild;
 import hudson.model.FreeStyleProject;
 import hudson.model.Job;
 import hudson.model.Run;
+import hudson.plugins.clover.results.ProjectCoverage;
 import hudson.plugins.clover.targets.CoverageTarget;
 import java.io.File;
+import java.net.URL;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import org.htmlunit.Page;
+import org.htmlunit.WebRequest;
 import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
 import org.jenkinsci.plugins.workflow.job.WorkflowJob;
 import org.jenkinsci.plugins.workflow.job.WorkflowRun;
@@ -178,6 +182,90 @@ class CloverBuildActionTest {
         }
     }
 
+    @Test
+    void testHtmlReportArchive() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject("TestHtmlReportArchive");
+        FilePath site = j.jenkins.getWorkspaceFor(project).child("target").child("site");
+        site.child("clover.xml")
+                .copyFrom(requireNonNull(getClass().getResourceAsStream("/hudson/plugins/clover/clover.xml")));
+        site.child("index.html").write("<html><body>Archived coverage</body></html>", "UTF-8");
+        site.child("pkg").child("page.html").write("<html><body>Package page</body></html>", "UTF-8");
+
+        CloverPublisher publisher = new CloverPublisher("target/site", "clover.xml");
+        publisher.setHtmlStorage(HtmlReportStorage.ARCHIVE);
+        project.getPublishersList().add(publisher);
+        FreeStyleBuild build = j.buildAndAssertSuccess(project);
+
+        assertThat(HtmlReportArchive.exists(build), is(true));
+        assertThat(new File(build.getRootDir(), "index.html").exists(), is(false));
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            assertTextPresent(wc.getPage(build, "clover-report/"), "Archived coverage");
+            assertTextPresent(wc.getPage(build, "clover-report/pkg/page.html"), "Package page");
+            assertTextPresent(wc.getPage(project, "clover/"), "Archived coverage");
+        }
+    }
+
+    @Test
+    void testDeduplicatedHtmlReport() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject("TestDeduplicatedHtmlReport");
+        FilePath site = j.jenkins.getWorkspaceFor(project).child("target").child("site");
+        site.child("clover.xml")
+                .copyFrom(requireNonNull(getClass().getResourceAsStream("/hudson/plugins/clover/clover.xml")));
+        site.child("index.html").write("<html><body>Shared coverage</body></html>", "UTF-8");
+        site.child("style.css").write("body {}", "UTF-8");
+
+        CloverPublisher publisher = new CloverPublisher("target/site", "clover.xml");
+        publisher.setHtmlStorage(HtmlReportStorage.DEDUPLICATED);
+        project.getPublishersList().add(publisher);
+        FreeStyleBuild first = j.buildAndAssertSuccess(project);
+        FreeStyleBuild second = j.buildAndAssertSuccess(project);
+        j.assertLogContains("Transferred 3 new Clover HTML report files", first);
+        j.assertLogContains("Transferred 0 new Clover HTML report files", second);
+
+        first.delete();
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            assertTextPresent(wc.getPage(second, "clover-report/"), "Shared coverage");
+        }
+        second.delete();
+        File[] buckets = HtmlReportBlobStore.getBlobDir(project).listFiles(File::isDirectory);
+        for (File bucket : requireNonNull(buckets)) {
+            assertThat(requireNonNull(bucket.list()).length, is(0));
+        }
+    }
+
+    @Test
+    void testTrendEndpoint() throws Exception {
+        FreeStyleProject project = j.createFreeStyleProject("TestTrendEndpoint");
+        j.jenkins.getWorkspaceFor(project).child("target").child("site").child("clover.xml")
+                .copyFrom(requireNonNull(getClass().getResourceAsStream("/hudson/plugins/clover/clover.xml")));
+        project.getPublishersList().add(new CloverPublisher("target/site", "clover.xml"));
+        j.buildAndAssertSuccess(project);
+        j.buildAndAssertSuccess(project);
+
+        try (JenkinsRule.WebClient wc = j.createWebClient()) {
+            Page json = wc.goTo(project.getUrl() + "clover/trend?format=json", "application/json");
+            assertThat(json.getWebResponse().getContentAsString(), containsString("\"builds\":[1,2]"));
+
+            Page svg = wc.goTo(project.getUrl() + "clover/trend?width=300&height=150", "image/svg+xml");
+            assertThat(svg.getWebResponse().getContentAsString(), containsString("<polyline"));
+            String etag = svg.getWebResponse().getResponseHeaderValue("ETag");
+            assertNotNull(etag);
+
+            WebRequest revalidate = new WebRequest(new URL(j.getURL(), project.getUrl() + "clover/trend?width=300&height=150"));
+            revalidate.setAdditionalHeader("If-None-Match", etag);
+            assertEquals(304, wc.getPage(revalidate).getWebResponse().getStatusCode());
+
+            // the modification time of the store alone does not tell whether the trend changed
+            WebRequest modifiedSince = new WebRequest(new URL(j.getURL(), project.getUrl() + "clover/trend?width=300&height=150"));
+            modifiedSince.setAdditionalHeader("If-Modified-Since", "Fri, 01 Jan 2100 00:00:00 GMT");
+            assertEquals(200, wc.getPage(modifiedSince).getWebResponse().getStatusCode());
+
+            wc.setThrowExceptionOnFailingStatusCode(false);
+            assertEquals(404, wc.goTo(project.getUrl() + "clover/trend?reportId=..%2Fx", null)
+                    .getWebResponse().getStatusCode());
+        }
+    }
+
     @Test
     void testEqualsMethod() {
         CloverBuildAction action1 =
@@ -224,6 +312,21 @@ class CloverBuildActionTest {
         assertThat(action1.hashCode(), equalTo(action2.hashCode()));
     }
 
+    @Test
+    void testSummaryDoesNotNeedReport() throws Exception {
+        ProjectCoverage result = CloverCoverageParser.parse(getClass().getResourceAsStream("/hudson/plugins/clover/clover.xml"));
+        CloverBuildAction action =
+                CloverBuildAction.load(WORKSPACE_PATH_1, result, "1", HEALTHY_TARGET_1, UNHEALTHY_TARGET_1);
+        // the action is not attached to any build, so the report could not be loaded again
+        CloverBuildAction.invalidateReportCache();
+
+        assertThat(action.getMethods(), equalTo(result.getMethods()));
+        assertThat(action.getCoveredelements(), equalTo(result.getCoveredelements()));
+        assertThat(action.getNcloc(), equalTo(result.getNcloc()));
+        assertThat(action.getElementCoverage(), equalTo(result.getElementCoverage()));
+        assertNotNull(action.getBuildHealth());
+    }
+
     @Test
     void testBackwardCompatibilityLoadMethod() {
         CloverBuildAction action = CloverBuildAction.load(WORKSPACE_PATH_1, null, HEALTHY_TARGET_1, UNHEALTHY_TARGET_1);
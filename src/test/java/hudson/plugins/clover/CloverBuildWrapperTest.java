@@ -1,6 +1,7 @@
 package hudson.plugins.clover;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.openclover.ci.AntIntegrationListener;
 import hudson.util.LogTaskListener;
 import hudson.Launcher;
@@ -15,6 +16,7 @@ import java.util.List;
 import java.util.logging.Logger;
 import java.util.logging.Level;
 import java.util.Map;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -36,6 +38,16 @@ class CloverBuildWrapperTest {
         assertThat(trimDoubleQuotes.apply("\"abc\"def\""), equalTo("abc\"def"));
     }
 
+    @Test
+    void testBranchFileName() {
+        assertThat(CloverBuildWrapper.toFileName("main"), equalTo("main"));
+        assertThat(CloverBuildWrapper.toFileName("release-1.2_x"), equalTo("release-1.2_x"));
+        assertThat(CloverBuildWrapper.toFileName("feature/a"), equalTo("feature%2Fa"));
+        assertThat(CloverBuildWrapper.toFileName("feature_a"), not(equalTo(CloverBuildWrapper.toFileName("feature/a"))));
+        assertThat(CloverBuildWrapper.toFileName("a*b c+"), equalTo("a%2Ab+c%2B"));
+        assertThat(CloverBuildWrapper.toFileName(".."), equalTo(".."));
+    }
+
     @Test
     void testIsCmdExe() {
         assertThat(isCmdExe(Arrays.asList("c:\\windows\\cmd.exe", "echo")), is(false));
@@ -171,6 +183,55 @@ class CloverBuildWrapperTest {
         assertThat(cmds.get(7), containsString("clover.jar"));
     }
 
+    @Test
+    void testBundledJarIsProvisionedOnce(@TempDir File toolCache) throws Exception {
+        TaskListener listener = new LogTaskListener(Logger.getLogger(CloverBuildWrapperTest.class.getName()), Level.ALL);
+        Launcher outer = new Launcher.LocalLauncher(listener);
+        CloverBuildWrapper wrapper = new CloverBuildWrapper(true, true, null, false);
+        CloverBuildWrapper.CloverDecoratingLauncher cloverLauncher = new CloverBuildWrapper.CloverDecoratingLauncher(
+                wrapper, null, outer, new CIOptions.Builder(), new FilePath(toolCache));
+
+        String lib = decorateAntCommand(cloverLauncher);
+        File jar = new File(lib.substring(1, lib.length() - 1));
+        assertThat(jar.getParentFile().getParentFile(), equalTo(toolCache));
+        assertThat(new File(jar.getParentFile(), "clover.jar.sha256").isFile(), is(true));
+
+        long provisioned = jar.lastModified();
+        assertThat(jar.setLastModified(provisioned - 10000), is(true));
+        assertThat(decorateAntCommand(cloverLauncher), equalTo(lib));
+        // reused, not copied again
+        assertThat(jar.lastModified(), equalTo(provisioned - 10000));
+    }
+
+    @Test
+    void testTestOptimization() throws IOException {
+        TaskListener listener = new LogTaskListener(Logger.getLogger(CloverBuildWrapperTest.class.getName()), Level.ALL);
+        CloverBuildWrapper wrapper = new CloverBuildWrapper(true, true, null, false);
+        wrapper.setOptimizeTests(true);
+        CloverBuildWrapper.CloverDecoratingLauncher cloverLauncher = new CloverBuildWrapper.CloverDecoratingLauncher(
+                wrapper, null, new Launcher.LocalLauncher(listener), new CIOptions.Builder());
+        cloverLauncher.optimizationSnapshot = "/ws/.clover/clover.snapshot";
+
+        Launcher.ProcStarter starter = new DummyLauncher(cloverLauncher).launch();
+        starter.cmds("/usr/bin/ant", "clean", "test");
+        starter.pwd("target");
+        starter.masks(new boolean[starter.cmds().size()]);
+        cloverLauncher.decorateArgs(starter);
+
+        assertThat(starter.cmds(), hasItems("-Dclover.optimization.enabled=true",
+                "-Dclover.snapshot.file=/ws/.clover/clover.snapshot"));
+    }
+
+    private static String decorateAntCommand(CloverBuildWrapper.CloverDecoratingLauncher cloverLauncher) throws IOException {
+        Launcher.ProcStarter starter = new DummyLauncher(cloverLauncher).launch();
+        starter.cmds("/usr/bin/ant", "clean", "test");
+        starter.pwd("target");
+        starter.masks(new boolean[starter.cmds().size()]);
+        cloverLauncher.decorateArgs(starter);
+        List<String> cmds = starter.cmds();
+        return cmds.get(cmds.indexOf("-lib") + 1);
+    }
+
     private static class DummyLauncher extends Launcher {
         DummyLauncher(Launcher launcher) {
             super(launcher);
@@ -4,9 +4,16 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
+import hudson.plugins.clover.results.AbstractCloverMetrics;
+import hudson.plugins.clover.results.ClassCoverage;
+import hudson.plugins.clover.results.FileCoverage;
 import hudson.plugins.clover.results.PackageCoverage;
 import hudson.plugins.clover.results.ProjectCoverage;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
 import org.junit.jupiter.api.Test;
 
 /**
@@ -43,4 +50,58 @@ class CloverCoverageParserTest {
         assertEquals(2, result.getPackageCoverages().size());
         assertEquals(14, result.findClassCoverage("hudson.plugins.clover.results.AbstractCloverMetrics").getCoveredmethods());
     }
+
+    @Test
+    void testStaxAndDigesterModesAgree() throws Exception {
+        for (String resource : new String[] {"clover.xml", "clover-two-packages.xml"}) {
+            ProjectCoverage stax = CloverCoverageParser.parse(
+                    getClass().getResourceAsStream(resource), CloverCoverageParser.Mode.STAX);
+            ProjectCoverage digester = CloverCoverageParser.parse(
+                    getClass().getResourceAsStream(resource), CloverCoverageParser.Mode.DIGESTER);
+            assertSameMetrics(digester, stax);
+            assertEquals(digester.getPackages(), stax.getPackages());
+            assertEquals(digester.getPackageCoverages().size(), stax.getPackageCoverages().size());
+            for (int i = 0; i < digester.getPackageCoverages().size(); i++) {
+                PackageCoverage expectedPackage = digester.getPackageCoverages().get(i);
+                PackageCoverage actualPackage = stax.getPackageCoverages().get(i);
+                assertSameMetrics(expectedPackage, actualPackage);
+                assertEquals(expectedPackage.getFiles(), actualPackage.getFiles());
+                assertEquals(expectedPackage.getFileCoverages().size(), actualPackage.getFileCoverages().size());
+                for (int j = 0; j < expectedPackage.getFileCoverages().size(); j++) {
+                    FileCoverage expectedFile = expectedPackage.getFileCoverages().get(j);
+                    FileCoverage actualFile = actualPackage.getFileCoverages().get(j);
+                    assertSameMetrics(expectedFile, actualFile);
+                    assertEquals(expectedFile.getLoc(), actualFile.getLoc());
+                    assertEquals(expectedFile.getNcloc(), actualFile.getNcloc());
+                    assertEquals(expectedFile.getClasses(), actualFile.getClasses());
+                    assertEquals(expectedFile.getClassCoverages().size(), actualFile.getClassCoverages().size());
+                    for (int k = 0; k < expectedFile.getClassCoverages().size(); k++) {
+                        ClassCoverage expectedClass = expectedFile.getClassCoverages().get(k);
+                        assertSameMetrics(expectedClass, actualFile.getClassCoverages().get(k));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testStaxRejectsDoctype() {
+        String xml = "<?xml version=\"1.0\"?>\n"
+                + "<!DOCTYPE coverage [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]>\n"
+                + "<coverage><project name=\"&xxe;\"/></coverage>";
+        assertThrows(IOException.class, () -> CloverCoverageParser.parse(
+                new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)), CloverCoverageParser.Mode.STAX));
+    }
+
+    private static void assertSameMetrics(AbstractCloverMetrics expected, AbstractCloverMetrics actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getMethods(), actual.getMethods());
+        assertEquals(expected.getCoveredmethods(), actual.getCoveredmethods());
+        assertEquals(expected.getConditionals(), actual.getConditionals());
+        assertEquals(expected.getCoveredconditionals(), actual.getCoveredconditionals());
+        assertEquals(expected.getStatements(), actual.getStatements());
+        assertEquals(expected.getCoveredstatements(), actual.getCoveredstatements());
+        assertEquals(expected.getElements(), actual.getElements());
+        assertEquals(expected.getCoveredelements(), actual.getCoveredelements());
+    }
 }
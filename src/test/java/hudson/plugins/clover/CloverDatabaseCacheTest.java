@@ -0,0 +1,51 @@
+package hudson.plugins.clover;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.FilePath;
+import hudson.model.TaskListener;
+import hudson.util.LogTaskListener;
+import java.io.File;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CloverDatabaseCacheTest {
+
+    private static final TaskListener LISTENER =
+            new LogTaskListener(Logger.getLogger(CloverDatabaseCacheTest.class.getName()), Level.INFO);
+
+    @Test
+    void testDatabaseIsKeptWhileTheFingerprintMatches(@TempDir File tmp) throws Exception {
+        FilePath workspace = new FilePath(new File(tmp, "ws"));
+        FilePath dir = workspace.child(".clover");
+        File stored = new File(tmp, "job/clover-state/default.db");
+
+        CloverDatabaseCache cache = new CloverDatabaseCache(workspace, stored, "v1");
+        cache.restore(LISTENER);
+        dir.child("clover.db").write("registry", "UTF-8");
+        dir.child("clover.db1a2b_123").write("recording", "UTF-8");
+        cache.save();
+
+        // same workspace: the database is reused, the recordings are removed
+        cache.restore(LISTENER);
+        assertEquals("registry", dir.child("clover.db").readToString());
+        assertFalse(dir.child("clover.db1a2b_123").exists());
+
+        // fresh workspace: restored from the controller
+        workspace.deleteRecursive();
+        cache.restore(LISTENER);
+        assertEquals("registry", dir.child("clover.db").readToString());
+
+        // another Clover version: discarded
+        new CloverDatabaseCache(workspace, stored, "v2").restore(LISTENER);
+        assertFalse(dir.child("clover.db").exists());
+        workspace.deleteRecursive();
+        new CloverDatabaseCache(workspace, stored, "v2").restore(LISTENER);
+        assertFalse(dir.child("clover.db").exists());
+        assertTrue(new File(stored.getParentFile(), "default.db.tar").isFile());
+    }
+}
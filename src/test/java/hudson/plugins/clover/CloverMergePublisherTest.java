@@ -0,0 +1,106 @@
+package hudson.plugins.clover;
+
+import static java.util.Objects.requireNonNull;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import hudson.FilePath;
+import hudson.plugins.clover.results.FileCoverage;
+import hudson.plugins.clover.results.ProjectCoverage;
+import org.jenkinsci.plugins.workflow.cps.CpsFlowDefinition;
+import org.jenkinsci.plugins.workflow.job.WorkflowJob;
+import org.jenkinsci.plugins.workflow.job.WorkflowRun;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+import org.jvnet.hudson.test.junit.jupiter.WithJenkins;
+
+@WithJenkins
+class CloverMergePublisherTest {
+
+    private JenkinsRule jenkinsRule;
+
+    @BeforeEach
+    void setUp(JenkinsRule rule) {
+        jenkinsRule = rule;
+    }
+
+    private static String shard(String workspace, int count1, int count2) {
+        return "<coverage><project name='p'><package name='a'>"
+                + "<file name='" + workspace + "/m1/src/a/A.java'>"
+                + "<class name='A'><metrics statements='2' coveredstatements='1' elements='2' coveredelements='1'/></class>"
+                + "<metrics classes='1' loc='10' ncloc='8' statements='2' coveredstatements='1' elements='2' coveredelements='1'/>"
+                + "<line num='1' count='" + count1 + "' type='stmt'/><line num='2' count='" + count2 + "' type='stmt'/>"
+                + "</file>"
+                + "<file name='" + workspace + "/m2/src/a/A.java'>"
+                + "<class name='A'><metrics statements='1' elements='1'/></class>"
+                + "<metrics classes='1' loc='5' ncloc='4' statements='1' elements='1'/>"
+                + "<line num='1' count='0' type='stmt'/>"
+                + "</file></package></project></coverage>";
+    }
+
+    private static CloverBuildAction getAction(WorkflowRun build, String reportId) {
+        for (CloverBuildAction action : build.getActions(CloverBuildAction.class)) {
+            if (reportId.equals(action.getReportId())) {
+                return action;
+            }
+        }
+        return null;
+    }
+
+    @Test
+    void testMergeShardsFromWorkspace() throws Exception {
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, "mergeShards");
+        FilePath workspace = jenkinsRule.jenkins.getWorkspaceFor(job);
+        // the shards ran in other workspaces, each covering one of the statements of m1/src/a/A.java
+        workspace.child("shards/1/clover.xml").write(shard("/agent1/ws", 1, 0), "UTF-8");
+        workspace.child("shards/2/clover.xml").write(shard("/agent2/ws", 0, 5), "UTF-8");
+
+        job.setDefinition(new CpsFlowDefinition(
+                "node {\n"
+                        + "    cloverMerge(reportId: 'all', reportPattern: 'shards/*/clover.xml')\n"
+                        + "}\n", true));
+        WorkflowRun build = jenkinsRule.buildAndAssertSuccess(job);
+
+        CloverBuildAction action = getAction(build, "all");
+        assertNotNull(action, "merged report should be published");
+        ProjectCoverage result = action.getResult();
+        // the two files named A.java in package a stay apart
+        assertEquals(2, result.getFiles());
+        assertEquals(3, result.getStatements());
+        assertEquals(2, result.getCoveredstatements());
+        FileCoverage m1 = result.getPackageCoverages().get(0).getFileCoverages().get(0);
+        assertEquals(2, m1.getCoveredstatements());
+    }
+
+    @Test
+    void testMergePublishedReports() throws Exception {
+        WorkflowJob job = jenkinsRule.jenkins.createProject(WorkflowJob.class, "mergeReports");
+        FilePath workspace = jenkinsRule.jenkins.getWorkspaceFor(job);
+        for (String app : new String[] {"app1", "app2"}) {
+            workspace.child("coverage").child(app).child("clover.xml").copyFrom(requireNonNull(
+                    CloverMergePublisherTest.class.getResourceAsStream("/hudson/plugins/clover/clover.xml")));
+        }
+
+        job.setDefinition(new CpsFlowDefinition(
+                """
+                node {
+                    for (app in ['app1', 'app2']) {
+                        clover(cloverReportDir: "coverage/${app}", cloverReportFileName: 'clover.xml', reportId: app,
+                            healthyTarget: [methodCoverage: 70, conditionalCoverage: 80, statementCoverage: 80],
+                            unhealthyTarget: [methodCoverage: 0, conditionalCoverage: 0, statementCoverage: 0],
+                            failingTarget: [methodCoverage: 0, conditionalCoverage: 0, statementCoverage: 0])
+                    }
+                    cloverMerge(reportId: 'all', reportIds: 'app1, app2')
+                }
+                """, true));
+        WorkflowRun build = jenkinsRule.buildAndAssertSuccess(job);
+
+        ProjectCoverage app1 = requireNonNull(getAction(build, "app1")).getResult();
+        CloverBuildAction merged = getAction(build, "all");
+        assertNotNull(merged, "merged report should be published");
+        // the union of a report with itself is the report
+        assertEquals(app1.getElements(), merged.getResult().getElements());
+        assertEquals(app1.getCoveredelements(), merged.getResult().getCoveredelements());
+    }
+}
@@ -0,0 +1,23 @@
+package hudson.plugins.clover;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+class CloverStatisticsTest {
+
+    @Test
+    void testHistogram() {
+        CloverStatistics.Histogram histogram = new CloverStatistics.Histogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0.0, histogram.getMean());
+
+        histogram.record(0);
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(1000);
+        assertEquals(4, histogram.getCount());
+        assertEquals(252.0, histogram.getMean());
+        assertEquals(1000, histogram.getMax());
+    }
+}
@@ -0,0 +1,54 @@
+package hudson.plugins.clover;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HtmlReportArchiveTest {
+
+    private static File zip(File dir) throws Exception {
+        File file = new File(dir, HtmlReportArchive.FILE_NAME);
+        try (OutputStream os = Files.newOutputStream(file.toPath()); ZipOutputStream zip = new ZipOutputStream(os)) {
+            zip.putNextEntry(new ZipEntry("index.html"));
+            zip.write("<html/>".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        return file;
+    }
+
+    @Test
+    void testEvictedArchiveStaysOpenWhileInUse(@TempDir File dir) throws Exception {
+        File file = zip(dir);
+
+        HtmlReportArchive.OpenArchive archive = HtmlReportArchive.open(file);
+        try (InputStream in = archive.zip.getInputStream(archive.zip.getEntry("index.html"))) {
+            HtmlReportArchive.openArchives.invalidateAll();
+            // still readable, the request holds a reference
+            assertEquals("<html/>", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        archive.close();
+        assertThrows(IllegalStateException.class, () -> archive.zip.getEntry("index.html"));
+
+        // the next request opens the archive again
+        try (HtmlReportArchive.OpenArchive reopened = HtmlReportArchive.open(file)) {
+            assertNotSame(archive, reopened);
+            assertEquals(7, reopened.zip.getEntry("index.html").getSize());
+        }
+    }
+
+    @Test
+    void testMissingArchive(@TempDir File dir) throws Exception {
+        assertNull(HtmlReportArchive.open(new File(dir, HtmlReportArchive.FILE_NAME)));
+    }
+}
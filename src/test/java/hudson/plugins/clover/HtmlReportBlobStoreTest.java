@@ -0,0 +1,48 @@
+package hudson.plugins.clover;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HtmlReportBlobStoreTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef0123456789abcdef0123456789abcdef";
+
+    @Test
+    void testValidation() {
+        assertTrue(HtmlReportBlobStore.isValidHash(HASH));
+        assertFalse(HtmlReportBlobStore.isValidHash(""));
+        assertFalse(HtmlReportBlobStore.isValidHash(null));
+        assertFalse(HtmlReportBlobStore.isValidHash("../../../secrets/master.key"));
+        assertFalse(HtmlReportBlobStore.isValidHash(HASH.toUpperCase()));
+
+        assertTrue(HtmlReportBlobStore.isValidPath("com/acme/Foo.html"));
+        assertFalse(HtmlReportBlobStore.isValidPath(""));
+        assertFalse(HtmlReportBlobStore.isValidPath("/etc/passwd"));
+        assertFalse(HtmlReportBlobStore.isValidPath("com/../../x.html"));
+        assertFalse(HtmlReportBlobStore.isValidPath("a.html\n" + HASH + " b.html"));
+    }
+
+    @Test
+    void testReadManifestSkipsInvalidLines(@TempDir File dir) throws Exception {
+        File manifest = new File(dir, HtmlReportBlobStore.MANIFEST_FILE_NAME);
+        Files.write(manifest.toPath(), String.join("\n",
+                HASH + " index.html",
+                "../../../secrets/master.key evil.html",
+                HASH + " ../escape.html",
+                HASH + " /absolute.html",
+                "nohash").getBytes(StandardCharsets.UTF_8));
+
+        Map<String, String> hashes = HtmlReportBlobStore.readManifest(manifest);
+
+        assertEquals(1, hashes.size());
+        assertEquals(HASH, hashes.get("index.html"));
+    }
+}
@@ -0,0 +1,126 @@
+package hudson.plugins.clover;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.plugins.clover.results.FileCoverage;
+import hudson.plugins.clover.results.ProjectCoverage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class LineCoverageUnionTest {
+
+    private static final String SHARD = "<coverage><project name='p'><package name='a'>"
+            + "<file name='/w1/src/a/A.java'>"
+            + "<class name='A'><metrics methods='1' coveredmethods='1' statements='2' coveredstatements='1'"
+            + " conditionals='2' coveredconditionals='1' elements='5' coveredelements='3'/></class>"
+            + "<metrics classes='1' loc='10' ncloc='8' methods='1' coveredmethods='1' statements='2' coveredstatements='1'"
+            + " conditionals='2' coveredconditionals='1' elements='5' coveredelements='3'/>"
+            + "<line num='1' count='1' type='method'/><line num='2' count='1' type='stmt'/>"
+            + "<line num='3' count='0' type='stmt'/><line num='4' truecount='1' falsecount='0' type='cond'/>"
+            + "</file></package></project></coverage>";
+
+    private static void add(LineCoverageUnion union, String xml) throws Exception {
+        union.add(new ByteArrayInputStream(xml.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void testUnionOfShards() throws Exception {
+        LineCoverageUnion union = new LineCoverageUnion();
+        add(union, SHARD);
+        // the second shard ran in another workspace and covers the other statement and branch
+        add(union, SHARD.replace("/w1/", "/w2/")
+                .replace("num='2' count='1'", "num='2' count='0'")
+                .replace("num='3' count='0'", "num='3' count='4'")
+                .replace("truecount='1' falsecount='0'", "truecount='0' falsecount='2'"));
+        assertEquals(2, union.getReportCount());
+
+        ProjectCoverage project = union.toProjectCoverage("/w1/");
+        assertEquals(1, project.getPackages());
+        assertEquals(1, project.getFiles());
+        assertEquals(10, project.getLoc());
+        assertEquals(2, project.getCoveredstatements());
+        assertEquals(2, project.getCoveredconditionals());
+        assertEquals(5, project.getElements());
+        assertEquals(5, project.getCoveredelements());
+
+        FileCoverage file = project.findFileCoverage("src/a/A.java");
+        assertEquals(2, file.getStatements());
+        assertEquals("a.A", file.getClassCoverages().get(0).getName());
+    }
+
+    private static String file(String path, String lines) {
+        return "<file name='" + path + "'><metrics classes='1' loc='10' ncloc='8'/>" + lines + "</file>";
+    }
+
+    private static String report(String... files) {
+        return "<coverage><project name='p'><package name='a'>" + String.join("", files)
+                + "</package></project></coverage>";
+    }
+
+    @Test
+    void testSameNameInOnePackage() throws Exception {
+        LineCoverageUnion union = new LineCoverageUnion();
+        add(union, report(
+                file("/w1/m1/src/a/A.java", "<line num='1' count='1' type='stmt'/><line num='2' count='0' type='stmt'/>"),
+                file("/w1/m2/src/a/A.java", "<line num='1' count='0' type='stmt'/>")));
+        add(union, report(
+                file("/w2/m2/src/a/A.java", "<line num='1' count='3' type='stmt'/>"),
+                file("/w2/m1/src/a/A.java", "<line num='1' count='0' type='stmt'/><line num='2' count='0' type='stmt'/>")));
+
+        ProjectCoverage project = union.toProjectCoverage("/w1/");
+        assertEquals(2, project.getFiles());
+        FileCoverage m1 = project.findFileCoverage("m1/src/a/A.java");
+        assertEquals(2, m1.getStatements());
+        assertEquals(1, m1.getCoveredstatements());
+        FileCoverage m2 = project.findFileCoverage("m2/src/a/A.java");
+        assertEquals(1, m2.getStatements());
+        assertEquals(1, m2.getCoveredstatements());
+    }
+
+    @Test
+    void testRebasesFilesReadBeforeTheFirstMatch() throws Exception {
+        LineCoverageUnion union = new LineCoverageUnion();
+        add(union, report(
+                file("/w1/src/a/A.java", "<line num='1' count='1' type='stmt'/>"),
+                file("/w1/src/a/B.java", "<line num='1' count='0' type='stmt'/>")));
+        add(union, report(
+                file("C:\\w2\\src\\a\\B.java", "<line num='1' count='1' type='stmt'/>"),
+                file("C:\\w2\\src\\a\\A.java", "<line num='1' count='0' type='stmt'/>")));
+
+        ProjectCoverage project = union.toProjectCoverage("/w1/");
+        assertEquals(2, project.getFiles());
+        assertEquals(1, project.findFileCoverage("src/a/A.java").getCoveredstatements());
+        assertEquals(1, project.findFileCoverage("src/a/B.java").getCoveredstatements());
+    }
+
+    @Test
+    void testSerializedUnionIsCompact() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 1; i <= 100000; i++) {
+            lines.append("<line num='").append(i).append("' count='").append(i % 2).append("' type='stmt'/>");
+        }
+        LineCoverageUnion union = new LineCoverageUnion();
+        add(union, report(file("/w1/src/a/A.java", lines.toString())));
+        add(union, report(file("/w2/src/a/A.java", lines.toString().replace("count='0'", "count='2'"))));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(union);
+        }
+        // five bytes per line plus the metrics
+        assertTrue(bytes.size() < 600000, "serialized to " + bytes.size() + " bytes");
+
+        LineCoverageUnion copy;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (LineCoverageUnion) in.readObject();
+        }
+        FileCoverage file = copy.toProjectCoverage("/w1/").findFileCoverage("src/a/A.java");
+        assertEquals(100000, file.getStatements());
+        assertEquals(100000, file.getCoveredstatements());
+    }
+}
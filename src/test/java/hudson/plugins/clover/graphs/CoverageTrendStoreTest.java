@@ -0,0 +1,47 @@
+package hudson.plugins.clover.graphs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CoverageTrendStoreTest {
+
+    private static CoverageTrendStore.Entry entry(int build) {
+        return new CoverageTrendStore.Entry(build, build * 1000L, 10, build, 0, 0, 0, 0, 10, build);
+    }
+
+    private static List<Integer> buildNumbers(File file) throws Exception {
+        List<Integer> numbers = new ArrayList<>();
+        for (CoverageTrendStore.Entry e : CoverageTrendStore.read(file)) {
+            numbers.add(e.getBuildNumber());
+        }
+        return numbers;
+    }
+
+    @Test
+    void testReadOrdersByBuildNumber(@TempDir File dir) throws Exception {
+        File file = new File(dir, "clover-trend.dat");
+        CoverageTrendStore.append(file, List.of(entry(3)));
+        // older builds added later, e.g. by the backfill of an upgraded job
+        CoverageTrendStore.append(file, List.of(entry(2), entry(1)));
+
+        assertEquals(List.of(1, 2, 3), buildNumbers(file));
+    }
+
+    @Test
+    void testRemoveDeletedBuild(@TempDir File dir) throws Exception {
+        File file = new File(dir, "clover-trend.dat");
+        CoverageTrendStore.append(file, List.of(entry(1), entry(2), entry(3)));
+
+        CoverageTrendStore.remove(file, 2);
+        CoverageTrendStore.remove(file, 7);
+        CoverageTrendStore.append(file, List.of(entry(4)));
+
+        assertEquals(List.of(1, 3, 4), buildNumbers(file));
+        assertEquals(List.of(), buildNumbers(new File(dir, "missing.dat")));
+    }
+}
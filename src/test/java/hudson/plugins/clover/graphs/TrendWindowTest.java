@@ -0,0 +1,72 @@
+package hudson.plugins.clover.graphs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class TrendWindowTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    /** Six builds a day for ten days, from Thursday 1 January 1970 (UTC). */
+    private static List<CoverageTrendStore.Entry> history() {
+        List<CoverageTrendStore.Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            entries.add(new CoverageTrendStore.Entry(i + 1, i * 4 * HOUR, 10, i % 10, 0, 0, 0, 0, 10, i % 10));
+        }
+        return entries;
+    }
+
+    private static List<Integer> buildNumbers(List<CoverageTrendStore.Entry> entries) {
+        List<Integer> numbers = new ArrayList<>();
+        for (CoverageTrendStore.Entry e : entries) {
+            numbers.add(e.getBuildNumber());
+        }
+        return numbers;
+    }
+
+    @Test
+    void testAllBuilds() {
+        assertEquals(60, new TrendWindow(0, TrendWindow.Downsampling.DAY).apply(history()).size());
+        assertEquals(60, new TrendWindow(100, TrendWindow.Downsampling.DAY).apply(history()).size());
+    }
+
+    @Test
+    void testOlderBuildsLeftOut() {
+        assertEquals(List.of(56, 57, 58, 59, 60),
+                buildNumbers(new TrendWindow(5, TrendWindow.Downsampling.NONE).apply(history())));
+    }
+
+    @Test
+    void testOlderBuildsDownsampled() {
+        // builds 1-48 fill the first eight days, the last build of each of them is kept
+        assertEquals(List.of(6, 12, 18, 24, 30, 36, 42, 48, 49, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59, 60),
+                buildNumbers(new TrendWindow(12, TrendWindow.Downsampling.DAY, ZoneOffset.UTC).apply(history())));
+        // the first week ends on Sunday 4 January, the next one starts on Monday
+        assertEquals(List.of(24, 48, 49, 50, 51, 52, 53, 54, 55, 56, 57, 58, 59, 60),
+                buildNumbers(new TrendWindow(12, TrendWindow.Downsampling.WEEK, ZoneOffset.UTC).apply(history())));
+    }
+
+    @Test
+    void testDaysInTimeZoneOfController() {
+        // 05:00 UTC is still the previous day in New York, so each day there ends with the build at 04:00 UTC
+        List<Integer> numbers = buildNumbers(
+                new TrendWindow(12, TrendWindow.Downsampling.DAY, ZoneId.of("America/New_York")).apply(history()));
+        assertEquals(List.of(2, 8, 14, 20, 26, 32, 38, 44, 48), numbers.subList(0, 9));
+    }
+
+    @Test
+    void testRequestedBuildsClamped() {
+        TrendWindow window = new TrendWindow(20, TrendWindow.Downsampling.DAY);
+        assertEquals(1, window.limit(0).getBuilds());
+        assertEquals(1, window.limit(-5).getBuilds());
+        assertEquals(5, window.limit(5).getBuilds());
+        assertEquals(20, window.limit(1000).getBuilds());
+        assertEquals(1000, new TrendWindow(0, TrendWindow.Downsampling.DAY).limit(1000).getBuilds());
+    }
+}
@@ -0,0 +1,102 @@
+package hudson.plugins.clover.results;
+
+import static hudson.plugins.clover.results.AbstractCloverMetrics.addMetrics;
+
+import java.util.Arrays;
+
+/**
+ * Builds small coverage trees for the tests. Each node is added to the package or file added last, and the metrics
+ * and counts of a class are added to its file, package and project, so the tree is consistent like a parsed report.
+ */
+final class CoverageBuilder {
+
+    private final ProjectCoverage project = new ProjectCoverage();
+    private PackageCoverage packageCoverage;
+    private FileCoverage fileCoverage;
+    private ClassCoverage classCoverage;
+
+    CoverageBuilder() {
+    }
+
+    CoverageBuilder(String name) {
+        project.setName(name);
+    }
+
+    CoverageBuilder pkg(String name) {
+        packageCoverage = new PackageCoverage();
+        packageCoverage.setName(name);
+        project.addPackageCoverage(packageCoverage);
+        project.setPackages(project.getPackages() + 1);
+        return this;
+    }
+
+    CoverageBuilder file(String name) {
+        fileCoverage = new FileCoverage();
+        fileCoverage.setName(name);
+        packageCoverage.addFileCoverage(fileCoverage);
+        packageCoverage.setFiles(packageCoverage.getFiles() + 1);
+        project.setFiles(project.getFiles() + 1);
+        return this;
+    }
+
+    /**
+     * Adds classes without any code to the current file.
+     */
+    CoverageBuilder cls(String... names) {
+        for (String name : names) {
+            cls(name, 0, 0, 0);
+        }
+        return this;
+    }
+
+    /**
+     * Adds a class of {@code statements} statements, {@code covered} of them covered, to the current file.
+     */
+    CoverageBuilder cls(String name, int statements, int covered) {
+        return cls(name, statements, covered, 0);
+    }
+
+    CoverageBuilder cls(String name, int statements, int covered, int complexity) {
+        classCoverage = new ClassCoverage();
+        classCoverage.setName(name);
+        classCoverage.setStatements(statements);
+        classCoverage.setCoveredstatements(covered);
+        classCoverage.setElements(statements);
+        classCoverage.setCoveredelements(covered);
+        classCoverage.setComplexity(complexity);
+        fileCoverage.addClassCoverage(classCoverage);
+        for (AbstractClassAggregatedMetrics parent : Arrays.asList(fileCoverage, packageCoverage, project)) {
+            addMetrics(parent, classCoverage);
+            parent.setClasses(parent.getClasses() + 1);
+        }
+        return this;
+    }
+
+    /**
+     * Adds the source file of the top level class {@code name} of the current package, holding only that class.
+     */
+    CoverageBuilder source(String name, int statements, int covered) {
+        return source(name, statements, covered, 0);
+    }
+
+    CoverageBuilder source(String name, int statements, int covered, int complexity) {
+        final String cls = packageCoverage.getName() + "." + name;
+        return file(cls.replace('.', '/') + ".java").cls(cls, statements, covered, complexity);
+    }
+
+    ProjectCoverage getProject() {
+        return project;
+    }
+
+    PackageCoverage getPackage() {
+        return packageCoverage;
+    }
+
+    FileCoverage getFile() {
+        return fileCoverage;
+    }
+
+    ClassCoverage getClassCoverage() {
+        return classCoverage;
+    }
+}
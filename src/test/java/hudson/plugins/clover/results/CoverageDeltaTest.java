@@ -0,0 +1,93 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CoverageDeltaTest {
+
+    @Test
+    void testChangedFilesAndClasses() {
+        ProjectCoverage before = new CoverageBuilder().pkg("com.acme")
+                .source("B", 10, 5)
+                .source("A", 10, 10)
+                .source("C", 10, 0)
+                .getProject();
+        ProjectCoverage after = new CoverageBuilder().pkg("com.acme")
+                .source("A", 10, 5)
+                .source("C", 10, 0)
+                .source("B", 10, 10)
+                .getProject();
+
+        CoverageDelta delta = CoverageDelta.compute(after, before, 7);
+
+        assertEquals(7, delta.getPreviousBuild());
+        // coverage moved between files, the package itself did not change
+        assertTrue(delta.getPackages().isEmpty());
+        List<CoverageDelta.Change> files = delta.getFiles();
+        assertEquals(2, files.size());
+        assertEquals("com/acme/A.java", files.get(0).getName());
+        assertEquals("com.acme/com/acme/A.java/", files.get(0).getUrl());
+        assertEquals(CoverageDelta.Status.CHANGED, files.get(0).getStatus());
+        assertEquals(10, files.get(0).getCoveredBefore());
+        assertEquals(5, files.get(0).getCoveredAfter());
+        assertEquals(-50f, files.get(0).getChange(), 0.001f);
+        assertEquals("-50.0%", files.get(0).getChangeStr());
+        assertTrue(files.get(0).isRegression());
+        assertEquals("com/acme/B.java", files.get(1).getName());
+        assertFalse(files.get(1).isRegression());
+
+        List<CoverageDelta.Change> classes = delta.getClasses();
+        assertEquals(2, classes.size());
+        assertEquals("com.acme/com/acme/A.java/com.acme.A/", classes.get(0).getUrl());
+        assertEquals(2, delta.getRegressionCount());
+        assertEquals("+0.0%", delta.getProject().getChangeStr());
+    }
+
+    @Test
+    void testAddedAndRemovedSubtrees() {
+        ProjectCoverage before = new CoverageBuilder()
+                .pkg("com.acme").source("A", 10, 5)
+                .pkg("com.acme.old").source("Old", 4, 4)
+                .getProject();
+        ProjectCoverage after = new CoverageBuilder()
+                .pkg("com.acme").source("A", 10, 5).source("New", 6, 3)
+                .pkg("com.acme.api").source("Api", 2, 0)
+                .getProject();
+
+        CoverageDelta delta = CoverageDelta.compute(after, before, 1);
+
+        List<CoverageDelta.Change> packages = delta.getPackages();
+        assertEquals(3, packages.size());
+        assertEquals("com.acme", packages.get(0).getName());
+        assertEquals(CoverageDelta.Status.CHANGED, packages.get(0).getStatus());
+        assertEquals("com.acme.api", packages.get(1).getName());
+        assertEquals(CoverageDelta.Status.ADDED, packages.get(1).getStatus());
+        assertEquals(0, packages.get(1).getElementsBefore());
+        assertTrue(Float.isNaN(packages.get(1).getChange()));
+        assertEquals("com.acme.old", packages.get(2).getName());
+        assertEquals(CoverageDelta.Status.REMOVED, packages.get(2).getStatus());
+        assertEquals(4, packages.get(2).getElementsBefore());
+        assertEquals(0, packages.get(2).getElementsAfter());
+
+        // the files of added and removed packages are not listed on their own
+        assertEquals(1, delta.getFiles().size());
+        assertEquals("com/acme/New.java", delta.getFiles().get(0).getName());
+        assertEquals(CoverageDelta.Status.ADDED, delta.getFiles().get(0).getStatus());
+        assertTrue(delta.getClasses().isEmpty());
+    }
+
+    @Test
+    void testUnchangedReport() {
+        ProjectCoverage before = new CoverageBuilder().pkg("com.acme").source("A", 10, 5).getProject();
+        ProjectCoverage after = new CoverageBuilder().pkg("com.acme").source("A", 10, 5).getProject();
+
+        CoverageDelta delta = CoverageDelta.compute(after, before, 1);
+
+        assertTrue(delta.isEmpty());
+        assertEquals(0, delta.getRegressionCount());
+    }
+}
@@ -0,0 +1,50 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CoverageRankingTest {
+
+    private static ProjectCoverage project(int... covered) {
+        CoverageBuilder builder = new CoverageBuilder().pkg("com.acme");
+        for (int i = 0; i < covered.length; i++) {
+            builder.source("C" + i, 100, covered[i], 10 * (i + 1));
+        }
+        return builder.getProject();
+    }
+
+    @Test
+    void testTopEntries() {
+        CoverageRanking ranking = CoverageRanking.compute(project(90, 10, 50, 100), null, 2);
+
+        List<CoverageRanking.Entry> uncovered = ranking.getClasses(CoverageRanking.Order.UNCOVERED);
+        assertEquals(2, uncovered.size());
+        assertEquals("com.acme.C1", uncovered.get(0).getName());
+        assertEquals(90, uncovered.get(0).getUncovered());
+        assertEquals("com.acme.C2", uncovered.get(1).getName());
+        assertEquals("com.acme/com/acme/C1.java/com.acme.C1/", uncovered.get(0).getUrl());
+
+        List<CoverageRanking.Entry> risk = ranking.getFiles(CoverageRanking.Order.RISK);
+        assertEquals("com/acme/C1.java", risk.get(0).getName());
+        assertEquals(18f, risk.get(0).getRisk(), 0.001f);
+        assertEquals("com/acme/C2.java", risk.get(1).getName());
+        assertEquals("15.0", risk.get(1).getRiskStr());
+
+        assertTrue(ranking.getClasses(CoverageRanking.Order.DROP).isEmpty());
+    }
+
+    @Test
+    void testDropSincePreviousBuild() {
+        CoverageRanking ranking = CoverageRanking.compute(project(90, 10, 50, 100), project(95, 40, 50, 100), 5);
+
+        List<CoverageRanking.Entry> drop = ranking.getClasses(CoverageRanking.Order.DROP);
+        assertEquals(2, drop.size());
+        assertEquals("com.acme.C1", drop.get(0).getName());
+        assertEquals(30f, drop.get(0).getDrop(), 0.001f);
+        assertEquals("30.0%", drop.get(0).getDropStr());
+        assertEquals("com.acme.C0", drop.get(1).getName());
+    }
+}
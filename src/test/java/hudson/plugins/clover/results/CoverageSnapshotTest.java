@@ -0,0 +1,94 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import hudson.plugins.clover.CloverCoverageParser;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CoverageSnapshotTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void testRoundTrip() throws Exception {
+        ProjectCoverage expected = CloverCoverageParser.trimPaths(
+                CloverCoverageParser.parse(getClass().getResourceAsStream("/hudson/plugins/clover/clover-two-packages.xml")),
+                "C:\\local\\maven\\helpers\\hudson\\clover\\");
+        expected.findClassCoverage("hudson.plugins.clover.results.AbstractCloverMetrics").setComplexity(42);
+        File file = tmp.resolve("clover.snapshot").toFile();
+        CoverageSnapshot.write(expected, file);
+
+        ProjectCoverage actual = CoverageSnapshot.read(file);
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getPackages(), actual.getPackages());
+        assertEquals(expected.getElements(), actual.getElements());
+        assertEquals(expected.getCoveredelements(), actual.getCoveredelements());
+        assertEquals(expected.getPackageCoverages().size(), actual.getPackageCoverages().size());
+        for (PackageCoverage p : expected.getPackageCoverages()) {
+            PackageCoverage q = actual.findPackageCoverage(p.getName());
+            assertEquals(p.getNcloc(), q.getNcloc());
+            assertEquals(p.getFiles(), q.getFiles());
+            for (FileCoverage f : p.getFileCoverages()) {
+                FileCoverage g = q.findFileCoverage(f.getName());
+                assertEquals(f.getLoc(), g.getLoc());
+                assertEquals(f.getClassCoverages().size(), g.getClassCoverages().size());
+                for (ClassCoverage c : f.getClassCoverages()) {
+                    ClassCoverage d = g.findClassCoverage(c.getName());
+                    assertEquals(c.getCoveredmethods(), d.getCoveredmethods());
+                    assertEquals(c.getStatements(), d.getStatements());
+                }
+            }
+        }
+        assertEquals(14, actual.findClassCoverage("hudson.plugins.clover.results.AbstractCloverMetrics").getCoveredmethods());
+        assertEquals(42, actual.findClassCoverage("hudson.plugins.clover.results.AbstractCloverMetrics").getComplexity());
+    }
+
+    @Test
+    void testReadsVersion1() throws Exception {
+        File file = tmp.resolve("clover.snapshot").toFile();
+        try (OutputStream os = Files.newOutputStream(file.toPath()); DataOutputStream out = new DataOutputStream(os)) {
+            out.writeInt(CoverageSnapshot.MAGIC);
+            out.writeInt(1);
+            out.writeInt(2);
+            for (String s : new String[] {"project", "com.acme"}) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            // name, children, then the 13 counters of version 1
+            for (int[] record : new int[][] {{0, 1, 4, 3, 2, 1, 10, 8, 16, 12, 2, 100, 80, 1, 1},
+                                             {1, 0, 4, 3, 2, 1, 10, 8, 16, 12, 2, 100, 80, 1, 0}}) {
+                for (int i : record) {
+                    out.writeInt(i);
+                }
+            }
+        }
+
+        ProjectCoverage actual = CoverageSnapshot.read(file);
+        assertEquals("project", actual.getName());
+        assertEquals(12, actual.getCoveredelements());
+        assertEquals(1, actual.getPackages());
+        assertEquals(0, actual.getComplexity());
+        PackageCoverage p = actual.findPackageCoverage("com.acme");
+        assertEquals(80, p.getNcloc());
+        assertEquals(16, p.getElements());
+        assertEquals(0, p.getComplexity());
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws Exception {
+        File file = tmp.resolve("clover.snapshot").toFile();
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> CoverageSnapshot.read(file));
+    }
+}
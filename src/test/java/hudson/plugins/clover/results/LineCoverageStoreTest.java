@@ -0,0 +1,135 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import hudson.plugins.clover.CloverCoverageParser;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class LineCoverageStoreTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void testWriteFromReport() throws Exception {
+        File xml = new File(getClass().getResource("/hudson/plugins/clover/clover-two-packages.xml").toURI());
+        File file = tmp.resolve("clover.lines").toFile();
+        CloverCoverageParser.writeLines(xml, "C:\\local\\maven\\helpers\\hudson\\clover\\",
+                Files.newOutputStream(file.toPath()));
+
+        FileLineCoverage lines = LineCoverageStore.read(file, "src/main/java/hudson/plugins/clover/CloverCoverageParser.java");
+        assertEquals(14, lines.size());
+        assertEquals(19, lines.getLine(0));
+        assertEquals(FileLineCoverage.Type.METHOD, lines.getType(0));
+        assertEquals(2, lines.getHits(0));
+
+        int i = lines.indexOf(20);
+        assertEquals(FileLineCoverage.Type.STMT, lines.getType(i));
+        assertEquals(FileLineCoverage.Type.COND, lines.getType(i + 1));
+        assertEquals(1, lines.getHits(i + 1));
+        assertEquals(1, lines.getFalseHits(i + 1));
+        assertTrue(lines.isCovered(i + 1));
+
+        assertEquals(-1, lines.indexOf(31));
+        assertFalse(lines.isCovered(lines.indexOf(32)));
+        assertEquals(1, lines.getUncoveredCount());
+        assertEquals("32", lines.getUncoveredRanges());
+
+        assertNull(LineCoverageStore.read(file, "src/main/java/hudson/plugins/clover/Missing.java"));
+    }
+
+    @Test
+    void testUnorderedLines() throws Exception {
+        File file = tmp.resolve("clover.lines").toFile();
+        try (LineCoverageStore.Writer writer = LineCoverageStore.write(Files.newOutputStream(file.toPath()))) {
+            writer.startFile("b/B.java");
+            writer.addLine(4, "stmt", 0, 0);
+            writer.addLine(1, "method", 1, 0);
+            writer.addLine(3, "cond", 2, 0);
+            writer.addLine(2, "stmt", 5, 0);
+            writer.startFile("a/A.java");
+            writer.addLine(1, "stmt", 1, 0);
+            writer.startFile("c/Empty.java");
+        }
+
+        FileLineCoverage lines = LineCoverageStore.read(file, "b/B.java");
+        assertEquals(4, lines.size());
+        assertEquals(1, lines.getLine(0));
+        assertEquals(5, lines.getHits(lines.indexOf(2)));
+        assertTrue(lines.isPartial(lines.indexOf(3)));
+        assertEquals("3-4", lines.getUncoveredRanges());
+        assertEquals(1, LineCoverageStore.read(file, "a/A.java").size());
+        assertNull(LineCoverageStore.read(file, "c/Empty.java"));
+    }
+
+    @Test
+    void testMethods() throws Exception {
+        File xml = tmp.resolve("clover.xml").toFile();
+        Files.write(xml.toPath(), ("<coverage><project><package name=\"a\"><file name=\"/ws/a/A.java\">"
+                + "<class name=\"A\"/>"
+                + "<line num=\"3\" count=\"0\" type=\"method\" signature=\"run() : void\" complexity=\"2\"/>"
+                + "<line num=\"4\" count=\"0\" type=\"stmt\"/>"
+                + "<line num=\"7\" count=\"4\" type=\"method\" signature=\"size() : int\" complexity=\"1\"/>"
+                + "<line num=\"9\" count=\"0\" type=\"method\" signature=\"parse(String) : A\" complexity=\"5\"/>"
+                + "</file></package></project></coverage>").getBytes(StandardCharsets.UTF_8));
+        File file = tmp.resolve("clover.lines").toFile();
+        CloverCoverageParser.writeLines(xml, "/ws/", Files.newOutputStream(file.toPath()));
+
+        FileLineCoverage lines = LineCoverageStore.read(file, "a/A.java");
+        assertEquals(4, lines.size());
+        MethodCoverageTable methods = lines.getMethods();
+        assertEquals(3, methods.size());
+        int size = methods.indexOf("size() : int");
+        assertEquals(7, methods.getLine(size));
+        assertEquals(4, methods.getHits(size));
+        assertTrue(methods.isCovered(size));
+        assertEquals(-1, methods.indexOf("missing() : void"));
+
+        List<MethodCoverageTable.Method> uncovered = methods.getUncoveredByComplexity();
+        assertEquals(2, uncovered.size());
+        assertEquals("parse(String) : A", uncovered.get(0).getSignature());
+        assertEquals(5, uncovered.get(0).getComplexity());
+        assertEquals("run() : void", uncovered.get(1).getSignature());
+    }
+
+    @Test
+    void testParseWithLines() throws Exception {
+        File xml = tmp.resolve("clover.xml").toFile();
+        Files.write(xml.toPath(), ("<coverage><project><package name=\"a\"><file name=\"/ws/a/A.java\">"
+                + "<class name=\"A\"><metrics statements=\"2\" coveredstatements=\"1\"/></class>"
+                + "<line num=\"3\" count=\"2\"/>"
+                + "<line num=\"4\" truecount=\"1\" falsecount=\"0\" type=\"cond\"/>"
+                + "</file></package></project></coverage>").getBytes(StandardCharsets.UTF_8));
+        File file = tmp.resolve("clover.lines").toFile();
+        ProjectCoverage result = CloverCoverageParser.parse(xml, "/ws/", CloverCoverageParser.Mode.STAX,
+                Files.newOutputStream(file.toPath()));
+
+        FileCoverage a = result.getPackageCoverages().get(0).getFileCoverages().get(0);
+        assertEquals("a/A.java", a.getName());
+        assertEquals("a.A", a.getClassCoverages().get(0).getName());
+        FileLineCoverage lines = LineCoverageStore.read(file, "a/A.java");
+        assertEquals(2, lines.size());
+        // a line without a type is a statement
+        assertEquals(FileLineCoverage.Type.STMT, lines.getType(0));
+        assertEquals(2, lines.getHits(0));
+        assertTrue(lines.isPartial(1));
+    }
+
+    @Test
+    void testRejectsOtherFiles() throws Exception {
+        File file = tmp.resolve("clover.lines").toFile();
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        assertThrows(IOException.class, () -> LineCoverageStore.read(file, "A.java"));
+    }
+}
@@ -0,0 +1,54 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class PackageCoverageTest {
+
+    private static Object navigate(PackageCoverage p, String path) {
+        Object node = p;
+        for (String token : path.split("/")) {
+            node = node instanceof PackageCoverage
+                    ? ((PackageCoverage) node).getDynamic(token, null, null)
+                    : ((PackageCoverage.FilePathMapper) node).getDynamic(token, null, null);
+            if (node == null) {
+                return null;
+            }
+        }
+        return node;
+    }
+
+    @Test
+    void testNavigateFileTree() {
+        CoverageBuilder builder = new CoverageBuilder().pkg("com.acme");
+        PackageCoverage p = builder.getPackage();
+        FileCoverage foo = builder.file("src/main/java/com/acme/Foo.java").getFile();
+        FileCoverage bar = builder.file("src/main/java/com/acme/Bar.java").getFile();
+        FileCoverage gen = builder.file("target/generated/com/acme/Gen.java").getFile();
+
+        assertSame(foo, navigate(p, "src/main/java/com/acme/Foo.java"));
+        assertSame(bar, navigate(p, "src/main/java/com/acme/Bar.java"));
+        assertSame(gen, navigate(p, "target/generated/com/acme/Gen.java"));
+        assertNull(navigate(p, "src/main/java/com/acme/Baz.java"));
+        assertNull(navigate(p, "sr"));
+
+        PackageCoverage.FilePathMapper acme = (PackageCoverage.FilePathMapper) navigate(p, "src/main/java/com/acme");
+        assertEquals("src/main/java/com/acme/", acme.getPath());
+        assertEquals(Arrays.asList("Bar.java", "Foo.java"), new ArrayList<>(acme.getFiles().keySet()));
+        assertEquals(Arrays.asList("src", "target"), new ArrayList<>(p.getFileTree().getDirectories().keySet()));
+    }
+
+    @Test
+    void testFileTreeSeesLaterAdditions() {
+        CoverageBuilder builder = new CoverageBuilder().pkg("com.acme").file("src/Foo.java");
+        PackageCoverage p = builder.getPackage();
+        assertNull(navigate(p, "Late.java"));
+        FileCoverage late = builder.file("Late.java").getFile();
+        assertSame(late, navigate(p, "Late.java"));
+    }
+}
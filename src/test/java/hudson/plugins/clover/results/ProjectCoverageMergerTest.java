@@ -0,0 +1,65 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class ProjectCoverageMergerTest {
+
+    private static ProjectCoverage module(String pkgName, String file, String cls, int statements, int covered) {
+        return new CoverageBuilder("module").pkg(pkgName).file(file).cls(cls, statements, covered).getProject();
+    }
+
+    @Test
+    void testMergeSumsSharedPackages() {
+        ProjectCoverage merged = ProjectCoverageMerger.merge(Arrays.asList(
+                module("com.acme", "com/acme/Foo.java", "com.acme.Foo", 10, 5),
+                module("com.acme", "com/acme/Bar.java", "com.acme.Bar", 30, 15),
+                module("org.acme", "org/acme/Baz.java", "org.acme.Baz", 60, 60)));
+
+        assertEquals("module", merged.getName());
+        assertEquals(2, merged.getPackages());
+        assertEquals(3, merged.getFiles());
+        assertEquals(3, merged.getClasses());
+        assertEquals(100, merged.getStatements());
+        assertEquals(80, merged.getCoveredstatements());
+
+        PackageCoverage acme = merged.findPackageCoverage("com.acme");
+        assertEquals(2, acme.getFiles());
+        assertEquals(40, acme.getStatements());
+        assertEquals(20, acme.getCoveredstatements());
+        assertEquals(30, merged.findClassCoverage("com.acme.Bar").getStatements());
+    }
+
+    @Test
+    void testMergeSameFileTwice() {
+        // the same source compiled into two modules is counted once, with its best coverage
+        ProjectCoverage merged = ProjectCoverageMerger.merge(Arrays.asList(
+                module("com.acme", "com/acme/Foo.java", "com.acme.Foo", 10, 5),
+                module("com.acme", "com/acme/Foo.java", "com.acme.Foo", 10, 3)));
+
+        assertEquals(1, merged.getPackages());
+        assertEquals(1, merged.getFiles());
+        assertEquals(1, merged.getClasses());
+        assertEquals(10, merged.getStatements());
+        assertEquals(5, merged.getCoveredstatements());
+        assertEquals(10, merged.findPackageCoverage("com.acme").getStatements());
+        assertEquals(10, merged.findFileCoverage("com/acme/Foo.java").getStatements());
+        assertEquals(5, merged.findClassCoverage("com.acme.Foo").getCoveredstatements());
+    }
+
+    @Test
+    void testMergeManyFiles() {
+        ProjectCoverage[] modules = new ProjectCoverage[2000];
+        for (int i = 0; i < modules.length; i++) {
+            modules[i] = module("com.acme", "com/acme/F" + i + ".java", "com.acme.F" + i, 10, i % 11);
+        }
+        ProjectCoverage merged = ProjectCoverageMerger.merge(Arrays.asList(modules));
+
+        assertEquals(1, merged.getPackages());
+        assertEquals(2000, merged.getFiles());
+        assertEquals(20000, merged.getStatements());
+        assertEquals(10, merged.findClassCoverage("com.acme.F1999").getStatements());
+    }
+}
@@ -0,0 +1,50 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+class ProjectCoverageTest {
+
+    @Test
+    void testFindClassCoverageInNestedPackages() {
+        CoverageBuilder builder = new CoverageBuilder();
+        PackageCoverage a = builder.pkg("com.acme").file("com/acme/Foo.java").cls("com.acme.Foo").getPackage();
+        PackageCoverage b = builder.pkg("com.acme.util").file("com/acme/util/Bar.java")
+                .cls("com.acme.util.Bar", "com.acme.util.Bar.Inner").getPackage();
+        ProjectCoverage project = builder.getProject();
+
+        assertSame(a.getFileCoverages().get(0).getClassCoverages().get(0), project.findClassCoverage("com.acme.Foo"));
+        assertSame(b.getFileCoverages().get(0).getClassCoverages().get(1), project.findClassCoverage("com.acme.util.Bar.Inner"));
+        assertNull(project.findClassCoverage("com.acme.Missing"));
+        assertNull(project.findClassCoverage("org.acme.Foo"));
+        assertNull(project.findClassCoverage("Foo"));
+        assertSame(b, project.findPackageCoverage("com.acme.util"));
+        assertSame(b.getFileCoverages().get(0), project.findFileCoverage("com/acme/util/Bar.java"));
+    }
+
+    @Test
+    void testIndexesSeeLaterAdditions() {
+        CoverageBuilder builder = new CoverageBuilder().pkg("com.acme").file("com/acme/Foo.java").cls("com.acme.Foo");
+        ProjectCoverage project = builder.getProject();
+        assertNull(project.findClassCoverage("org.acme.Bar"));
+        assertNull(project.findPackageCoverage("org.acme"));
+
+        PackageCoverage late = builder.pkg("org.acme").file("org/acme/Bar.java").cls("org.acme.Bar").getPackage();
+        assertSame(late, project.findPackageCoverage("org.acme"));
+        assertSame(late.getFileCoverages().get(0), project.findFileCoverage("org/acme/Bar.java"));
+        assertSame(late.getFileCoverages().get(0).getClassCoverages().get(0), project.findClassCoverage("org.acme.Bar"));
+    }
+
+    @Test
+    void testNodeCount() {
+        CoverageBuilder builder = new CoverageBuilder();
+        ProjectCoverage project = builder.getProject();
+        assertEquals(1, project.getNodeCount());
+        builder.pkg("com.acme").file("com/acme/Foo.java").cls("com.acme.Foo", "com.acme.Foo.Inner");
+        builder.pkg("org.acme").file("org/acme/Bar.java").cls("org.acme.Bar");
+        assertEquals(1 + 2 + 2 + 3, project.getNodeCount());
+    }
+}
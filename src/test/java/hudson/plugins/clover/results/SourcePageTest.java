@@ -0,0 +1,69 @@
+package hudson.plugins.clover.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SourcePageTest {
+
+    @TempDir
+    Path tmp;
+
+    @Test
+    void testPages() throws Exception {
+        File archive = tmp.resolve("clover-sources.zip").toFile();
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(archive.toPath()))) {
+            zip.putNextEntry(new ZipEntry("src/A.java"));
+            StringBuilder source = new StringBuilder();
+            for (int i = 1; i <= 2 * SourcePage.SIZE + 10; i++) {
+                source.append("line ").append(i).append('\n');
+            }
+            zip.write(source.toString().getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+        }
+        File store = tmp.resolve("clover.lines").toFile();
+        try (OutputStream out = Files.newOutputStream(store.toPath());
+             LineCoverageStore.Writer writer = LineCoverageStore.write(out)) {
+            writer.startFile("src/A.java");
+            writer.addLine(1, "method", 3, 0);
+            writer.addLine(2, "stmt", 3, 0);
+            writer.addLine(2, "cond", 3, 0);
+            writer.addLine(3, "stmt", 0, 0);
+        }
+        FileLineCoverage coverage = LineCoverageStore.read(store, "src/A.java");
+
+        SourcePage first = SourcePage.read(archive, "src/A.java", coverage, 0);
+        assertEquals(SourcePage.SIZE, first.getLines().size());
+        assertFalse(first.hasPrevious());
+        assertTrue(first.hasNext());
+        assertEquals("line 1", first.getLines().get(0).getText());
+        assertEquals("covered", first.getLines().get(0).getStatus());
+        SourcePage.Line partial = first.getLines().get(1);
+        assertEquals(3, partial.getHits());
+        assertEquals(3, partial.getTrueHits());
+        assertEquals(0, partial.getFalseHits());
+        assertEquals("partial", partial.getStatus());
+        assertEquals("uncovered", first.getLines().get(2).getStatus());
+        assertEquals(-1, first.getLines().get(3).getHits());
+        assertEquals("", first.getLines().get(3).getStatus());
+
+        SourcePage last = SourcePage.read(archive, "src/A.java", coverage, 2);
+        assertEquals(10, last.getLines().size());
+        assertEquals(2 * SourcePage.SIZE + 1, last.getLines().get(0).getNumber());
+        assertTrue(last.hasPrevious());
+        assertFalse(last.hasNext());
+
+        assertNull(SourcePage.read(archive, "src/B.java", coverage, 0));
+    }
+}
@@ -0,0 +1,108 @@
+package hudson.plugins.clover.slave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DiscoverReportCallableTest {
+
+    /** Creates a report directory with a clover.xml at the given path below the workspace. */
+    private static Path report(File workspace, String dir) throws Exception {
+        Path reportDir = Files.createDirectories(workspace.toPath().resolve(dir));
+        Files.write(reportDir.resolve("clover.xml"), "<coverage/>".getBytes(StandardCharsets.UTF_8));
+        return reportDir;
+    }
+
+    private static DiscoverReportCallable.ReportLocation discover(File workspace, String reportDir, String xml,
+                                                                  String pattern) throws Exception {
+        return new DiscoverReportCallable(reportDir, xml, pattern).invoke(workspace, null);
+    }
+
+    @Test
+    void testDirectHit(@TempDir File workspace) throws Exception {
+        Path dir = report(workspace, "target/site");
+        Files.write(dir.resolve("index.html"), "<html/>".getBytes(StandardCharsets.UTF_8));
+        report(workspace, "module/target/site");
+
+        DiscoverReportCallable.ReportLocation location = discover(workspace, "target/site", "clover.xml", null);
+
+        assertEquals(workspace.getCanonicalPath(), location.getWorkspacePath());
+        assertEquals(dir.toString(), location.getReportDir());
+        assertEquals(dir.resolve("clover.xml").toString(), location.getXmlFile());
+        assertEquals(11, location.getXmlSize());
+        assertEquals(dir.toString(), location.getHtmlDir());
+    }
+
+    @Test
+    void testDefaultPatternSearchesOneLevel(@TempDir File workspace) throws Exception {
+        Path dir = report(workspace, "module/target/site");
+
+        assertEquals(dir.toString(), discover(workspace, "target/site", "clover.xml", null).getReportDir());
+        assertEquals(dir.resolve("clover.xml").toString(),
+                discover(workspace, "target/site", "clover.xml", "*").getXmlFile());
+    }
+
+    @Test
+    void testDefaultPatternDoesNotSearchDeeper(@TempDir File workspace) throws Exception {
+        report(workspace, "parent/module/target/site");
+
+        DiscoverReportCallable.ReportLocation location = discover(workspace, "target/site", "clover.xml", null);
+
+        assertNull(location.getReportDir());
+        assertNull(location.getXmlFile());
+    }
+
+    @Test
+    void testAnyDepth(@TempDir File workspace) throws Exception {
+        Path dir = report(workspace, "parent/module/target/site");
+
+        assertEquals(dir.toString(), discover(workspace, "target/site", "clover.xml", "**").getReportDir());
+    }
+
+    @Test
+    void testShallowerMatchWins(@TempDir File workspace) throws Exception {
+        report(workspace, "a/b/target/site");
+        Path shallow = report(workspace, "z/target/site");
+
+        assertEquals(shallow.toString(), discover(workspace, "target/site", "clover.xml", "**").getReportDir());
+    }
+
+    @Test
+    void testSiblingsInNameOrder(@TempDir File workspace) throws Exception {
+        report(workspace, "b/target/site");
+        Path first = report(workspace, "a/target/site");
+
+        assertEquals(first.toString(), discover(workspace, "target/site", "clover.xml", null).getReportDir());
+    }
+
+    @Test
+    void testSymbolicLinksNotFollowed(@TempDir File tmp) throws Exception {
+        File workspace = Files.createDirectories(tmp.toPath().resolve("workspace")).toFile();
+        Path outside = Files.createDirectories(tmp.toPath().resolve("outside"));
+        report(outside.toFile(), "target/site");
+        Files.createSymbolicLink(workspace.toPath().resolve("link"), outside);
+
+        assertNull(discover(workspace, "target/site", "clover.xml", null).getReportDir());
+        assertNull(discover(workspace, "target/site", "clover.xml", "**").getReportDir());
+    }
+
+    @Test
+    void testAbsolutePaths(@TempDir File tmp) throws Exception {
+        File workspace = Files.createDirectories(tmp.toPath().resolve("workspace")).toFile();
+        Path dir = report(tmp, "elsewhere/site");
+        Path xml = Files.write(tmp.toPath().resolve("coverage.xml"), "<coverage/>".getBytes(StandardCharsets.UTF_8));
+
+        DiscoverReportCallable.ReportLocation location = discover(workspace, dir.toString(), "clover.xml", null);
+        assertEquals(dir.toString(), location.getReportDir());
+        assertEquals(dir.resolve("clover.xml").toString(), location.getXmlFile());
+
+        location = discover(workspace, dir.toString(), xml.toString(), null);
+        assertEquals(xml.toString(), location.getXmlFile());
+    }
+}
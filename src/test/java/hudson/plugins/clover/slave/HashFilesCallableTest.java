@@ -0,0 +1,28 @@
+package hudson.plugins.clover.slave;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class HashFilesCallableTest {
+
+    @Test
+    void testSymbolicLinksAreSkipped(@TempDir File tmp) throws Exception {
+        Path secret = Files.write(tmp.toPath().resolve("secret.key"), "secret".getBytes(StandardCharsets.UTF_8));
+        Path dir = Files.createDirectories(tmp.toPath().resolve("report"));
+        Files.write(dir.resolve("index.html"), "<html/>".getBytes(StandardCharsets.UTF_8));
+        Files.createSymbolicLink(dir.resolve("leak.html"), secret);
+
+        Map<String, String> hashes = new HashFilesCallable().invoke(dir.toFile(), null);
+
+        assertTrue(hashes.containsKey("index.html"));
+        assertFalse(hashes.containsKey("leak.html"));
+    }
+}
@@ -0,0 +1,43 @@
+package hudson.plugins.clover.slave;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ZipFilesCallableTest {
+
+    @Test
+    void testSymbolicLinksOutOfTheDirectoryAreIgnored(@TempDir File tmp) throws Exception {
+        Path secret = Files.write(tmp.toPath().resolve("secret.key"), "secret".getBytes(StandardCharsets.UTF_8));
+        Path outside = Files.createDirectories(tmp.toPath().resolve("outside"));
+        Path dir = Files.createDirectories(tmp.toPath().resolve("workspace/src"));
+        Files.write(dir.resolve("A.java"), "class A {}".getBytes(StandardCharsets.UTF_8));
+        Files.createSymbolicLink(dir.resolve("B.java"), secret);
+        Files.createSymbolicLink(dir.resolve("linked"), outside);
+        Files.write(outside.resolve("C.java"), "class C {}".getBytes(StandardCharsets.UTF_8));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int count = new ZipFilesCallable(List.of("src/A.java", "src/B.java", "src/linked/C.java", "../secret.key",
+                "src/missing.java"), out).invoke(dir.getParent().toFile(), null);
+
+        assertEquals(1, count);
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                names.add(entry.getName());
+            }
+        }
+        assertEquals(List.of("src/A.java"), names);
+    }
+}